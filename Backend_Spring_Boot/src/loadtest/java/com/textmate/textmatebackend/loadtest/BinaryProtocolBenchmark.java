@@ -0,0 +1,196 @@
+package com.textmate.textmatebackend.loadtest;
+
+import com.textmate.textmatebackend.TextmateBackendApplication;
+import com.textmate.textmatebackend.protocol.BinaryProtocol;
+import com.textmate.textmatebackend.protocol.BinaryProtocolClient;
+import com.textmate.textmatebackend.protocol.BinaryProtocolServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Uppercase throughput of the REST endpoint against the binary protocol, on one embedded instance
+ * (profile "loadtest"). Every request is logged to the history in all three modes: REST, binary with
+ * one request in flight per connection, and binary with a pipeline window. The history goes to a
+ * segmented log in a temporary directory, so the embedded database does not dominate the numbers.
+ *
+ * <pre>
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=com.textmate.textmatebackend.loadtest.BinaryProtocolBenchmark
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=... -Dexec.args="--threads=16 --text-chars=64,1024,16384 --pipeline=32"
+ * </pre>
+ * Client and server share this JVM's CPUs, so the ratio between the modes is more telling than the absolute numbers.
+ */
+public class BinaryProtocolBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int pipeline = Integer.parseInt(options.getOrDefault("pipeline", "16"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "3"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "10"));
+
+        Path historyDir = Files.createTempDirectory("binary-bench-history");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TextmateBackendApplication.class)
+                .profiles("loadtest")
+                .run("--textmate.binary.enabled=true", "--textmate.binary.port=0",
+                        "--textmate.history.sink=segmented-log", "--textmate.history.log.dir=" + historyDir);
+        try {
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            int binaryPort = context.getBean(BinaryProtocolServer.class).getPort();
+
+            StringBuilder report = new StringBuilder(String.format("%n%-10s %-18s %12s %10s %10s%n", "chars", "mode", "ops/s", "p50 us", "p99 us"));
+            for (String size : options.getOrDefault("text-chars", "64,1024,16384").split(",")) {
+                String text = "The quick brown fox jumps over the lazy dog. ".repeat(Integer.parseInt(size.trim()) / 45 + 1)
+                        .substring(0, Integer.parseInt(size.trim()));
+                report.append(run(size, "rest", threads, warmupSeconds, durationSeconds, () -> new RestCaller(baseUrl, text)));
+                report.append(run(size, "binary", threads, warmupSeconds, durationSeconds, () -> new BinaryCaller(binaryPort, text, 1)));
+                report.append(run(size, "binary pipelined " + pipeline, threads, warmupSeconds, durationSeconds,
+                        () -> new BinaryCaller(binaryPort, text, pipeline)));
+            }
+            System.out.print(report);
+        } finally {
+            context.close();
+        }
+        System.exit(0);
+    }
+
+    private interface Caller extends AutoCloseable {
+        /** Issues requests until end, recording the latency of those completed after measureFrom. */
+        void run(long measureFrom, long end, LatencyRecorder recorder) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface CallerFactory {
+        Caller create() throws Exception;
+    }
+
+    private static String run(String size, String mode, int threads, int warmupSeconds, int durationSeconds,
+                              CallerFactory factory) throws Exception {
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long end = measureFrom + Duration.ofSeconds(durationSeconds).toNanos();
+        List<Thread> workers = new ArrayList<>();
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Caller caller = factory.create();
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            Thread worker = new Thread(() -> {
+                try (caller) {
+                    caller.run(measureFrom, end, recorder);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        LatencyRecorder merged = new LatencyRecorder();
+        for (int i = 0; i < threads; i++) {
+            workers.get(i).join();
+            merged.merge(recorders.get(i));
+        }
+        if (merged.getErrors() > 0) {
+            throw new IllegalStateException(mode + " had " + merged.getErrors() + " failed requests");
+        }
+        return String.format("%-10s %-18s %12.0f %10.0f %10.0f%n", size, mode, merged.getCount() / (double) durationSeconds,
+                merged.percentileMicros(0.50), merged.percentileMicros(0.99));
+    }
+
+    private static final class RestCaller implements Caller {
+        private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        private final HttpRequest request;
+        private final String expected;
+
+        RestCaller(String baseUrl, String text) {
+            // Plain ASCII sentence, so it needs no JSON escaping
+            this.request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/uppercase"))
+                    .header("Content-Type", "application/json")
+                    .header("Session-Id", "bench-rest")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"" + text + "\"}"))
+                    .build();
+            this.expected = text.toUpperCase();
+        }
+
+        @Override
+        public void run(long measureFrom, long end, LatencyRecorder recorder) throws Exception {
+            long start;
+            while ((start = System.nanoTime()) < end) {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200 || !response.body().contains(expected)) {
+                    recorder.recordError();
+                } else if (start >= measureFrom) {
+                    recorder.record(System.nanoTime() - start);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            // HttpClient has no close() before Java 21
+        }
+    }
+
+    private static final class BinaryCaller implements Caller {
+        private final BinaryProtocolClient client;
+        private final String text;
+        private final String expected;
+        private final int window;
+
+        BinaryCaller(int port, String text, int window) throws Exception {
+            this.client = BinaryProtocolClient.connect("localhost", port);
+            this.text = text;
+            this.expected = text.toUpperCase();
+            this.window = window;
+        }
+
+        @Override
+        public void run(long measureFrom, long end, LatencyRecorder recorder) throws Exception {
+            // Keeps up to window requests in flight; latency is from send to response
+            ArrayDeque<Long> sentAt = new ArrayDeque<>();
+            ArrayDeque<CompletableFuture<BinaryProtocolClient.Response>> inFlight = new ArrayDeque<>();
+            while (true) {
+                long now = System.nanoTime();
+                if (now < end && inFlight.size() < window) {
+                    inFlight.add(client.send(BinaryProtocol.OP_UPPERCASE, (byte) 0, text));
+                    sentAt.add(now);
+                    continue;
+                }
+                if (inFlight.isEmpty()) {
+                    return;
+                }
+                BinaryProtocolClient.Response response = inFlight.poll().get();
+                long start = sentAt.poll();
+                if (!response.isOk() || !response.text().equals(expected)) {
+                    recorder.recordError();
+                } else if (start >= measureFrom && start < end) {
+                    recorder.record(System.nanoTime() - start);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.textmate.textmatebackend.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects raw latency samples of one endpoint. Each worker thread owns its own recorder,
+ * so recording needs no synchronization; recorders are merged once the run is over.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[4096];
+    private int count;
+    private long errors;
+
+    public void record(long latencyNanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyNanos;
+    }
+
+    public void recordError() {
+        errors++;
+    }
+
+    public void merge(LatencyRecorder other) {
+        if (count + other.count > samples.length) {
+            samples = Arrays.copyOf(samples, count + other.count);
+        }
+        System.arraycopy(other.samples, 0, samples, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the latency at the given quantile (0..1) in microseconds, using the nearest-rank method.
+     * Sorts the samples in place, so call it only after all samples are recorded.
+     */
+    public double percentileMicros(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(samples, 0, count);
+        int rank = (int) Math.ceil(quantile * count);
+        return samples[Math.max(0, Math.min(count - 1, rank - 1))] / 1000.0;
+    }
+}
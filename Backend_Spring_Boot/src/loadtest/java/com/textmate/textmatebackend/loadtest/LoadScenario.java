@@ -0,0 +1,131 @@
+package com.textmate.textmatebackend.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Load-test scenario: request mix, virtual users, text size distribution and load shape.
+ * Read from {@code loadtest-scenario.properties}, an optional scenario file and {@code --key=value} overrides.
+ */
+public class LoadScenario {
+
+    private final Map<String, Integer> mix = new LinkedHashMap<>();
+    private final int totalWeight;
+    private final int users;
+    private final double authenticatedRatio;
+    private final double textMedianChars;
+    private final double textSigma;
+    private final int textMaxChars;
+    private final int threads;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final String historyQuery;
+
+    private LoadScenario(Properties properties) {
+        int weight = 0;
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("mix.")) {
+                int w = Integer.parseInt(properties.getProperty(name).trim());
+                if (w > 0) {
+                    mix.put(name.substring("mix.".length()), w);
+                    weight += w;
+                }
+            }
+        }
+        if (weight == 0) {
+            throw new IllegalArgumentException("The request mix must contain at least one endpoint with a positive weight.");
+        }
+        this.totalWeight = weight;
+        this.users = intProperty(properties, "users");
+        this.authenticatedRatio = Double.parseDouble(properties.getProperty("authenticated-ratio"));
+        this.textMedianChars = Double.parseDouble(properties.getProperty("text.median-chars"));
+        this.textSigma = Double.parseDouble(properties.getProperty("text.sigma"));
+        this.textMaxChars = intProperty(properties, "text.max-chars");
+        this.threads = intProperty(properties, "threads");
+        this.warmupSeconds = intProperty(properties, "warmup-seconds");
+        this.durationSeconds = intProperty(properties, "duration-seconds");
+        this.historyQuery = properties.getProperty("history.query", "").trim();
+    }
+
+    /**
+     * Loads the bundled defaults, then the given scenario file (if any), then the overrides.
+     */
+    public static LoadScenario load(Path scenarioFile, Map<String, String> overrides) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = LoadScenario.class.getResourceAsStream("/loadtest-scenario.properties")) {
+            properties.load(in);
+        }
+        if (scenarioFile != null) {
+            try (Reader reader = Files.newBufferedReader(scenarioFile)) {
+                properties.load(reader);
+            }
+        }
+        properties.putAll(overrides);
+        return new LoadScenario(properties);
+    }
+
+    /**
+     * Picks an endpoint according to the mix weights. Anonymous users never pick "history".
+     */
+    public String pickEndpoint(Random random, boolean authenticated) {
+        while (true) {
+            int ticket = random.nextInt(totalWeight);
+            for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+                ticket -= entry.getValue();
+                if (ticket < 0) {
+                    if (authenticated || !entry.getKey().equals("history") || mix.size() == 1) {
+                        return entry.getKey();
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws a text length from the log-normal size distribution.
+     */
+    public int pickTextLength(Random random) {
+        double length = textMedianChars * Math.exp(textSigma * random.nextGaussian());
+        return (int) Math.max(1, Math.min(textMaxChars, Math.round(length)));
+    }
+
+    public Map<String, Integer> getMix() {
+        return mix;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public double getAuthenticatedRatio() {
+        return authenticatedRatio;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public String getHistoryQuery() {
+        return historyQuery;
+    }
+
+    private static int intProperty(Properties properties, String name) {
+        return Integer.parseInt(properties.getProperty(name).trim());
+    }
+}
@@ -0,0 +1,252 @@
+package com.textmate.textmatebackend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.textmate.textmatebackend.TextmateBackendApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Whole-stack load test: boots the application against an embedded H2 database (profile "loadtest"),
+ * replays a weighted mix of /api calls from authenticated and anonymous virtual users, and reports
+ * throughput and p50/p99/p999 latency per endpoint.
+ *
+ * <pre>
+ *   mvn -Ploadtest compile exec:java                                    run with the bundled scenario
+ *   mvn -Ploadtest compile exec:java -Dexec.args="--threads=32 --out=target/loadtest/candidate.csv"
+ *   mvn -Ploadtest compile exec:java -Dexec.args="--target=http://localhost:8087"   run against a running build
+ *   mvn -Ploadtest compile exec:java -Dexec.args="--compare=base.csv,candidate.csv --max-regression-pct=10"
+ * </pre>
+ * Comparing exits with status 1 if any endpoint lost more throughput or gained more p99 latency than allowed.
+ */
+public class LoadTestHarness {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestHarness.class);
+
+    private static final String[] WORDS = {
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "text", "analysis", "service", "response",
+            "latency", "throughput", "reading", "writing", "editor", "sentence", "paragraph", "document", "draft",
+            "review", "summary", "История", "texto", "पाठ", "naïve", "café"
+    };
+
+    private final LoadScenario scenario;
+    private final String baseUrl;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String corpus;
+
+    public LoadTestHarness(LoadScenario scenario, String baseUrl) {
+        this.scenario = scenario;
+        this.baseUrl = baseUrl;
+        this.corpus = buildCorpus(400_000);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        String compare = options.remove("compare");
+        double maxRegression = Double.parseDouble(options.getOrDefault("max-regression-pct", "10"));
+        options.remove("max-regression-pct");
+        if (compare != null) {
+            String[] files = compare.split(",");
+            boolean regressed = LoadTestReport.compare(LoadTestReport.read(Paths.get(files[0])),
+                    LoadTestReport.read(Paths.get(files[1])), maxRegression);
+            System.exit(regressed ? 1 : 0);
+        }
+
+        Path out = Paths.get(options.getOrDefault("out", "target/loadtest/report.csv"));
+        options.remove("out");
+        String scenarioFile = options.remove("scenario");
+        String target = options.remove("target");
+        LoadScenario scenario = LoadScenario.load(scenarioFile == null ? null : Paths.get(scenarioFile), options);
+
+        ConfigurableApplicationContext context = null;
+        if (target == null) {
+            context = new SpringApplicationBuilder(TextmateBackendApplication.class).profiles("loadtest").run();
+            target = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+        try {
+            LoadTestReport report = new LoadTestHarness(scenario, target).run();
+            System.out.print(report.format());
+            report.write(out);
+            logger.info("Report written to {}", out.toAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    public LoadTestReport run() throws Exception {
+        List<VirtualUser> users = createUsers();
+        logger.info("Running {} threads for {}s (+{}s warm-up) against {} with {} virtual users",
+                scenario.getThreads(), scenario.getDurationSeconds(), scenario.getWarmupSeconds(), baseUrl, users.size());
+
+        long start = System.nanoTime();
+        long measureFrom = start + Duration.ofSeconds(scenario.getWarmupSeconds()).toNanos();
+        long end = measureFrom + Duration.ofSeconds(scenario.getDurationSeconds()).toNanos();
+
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < scenario.getThreads(); i++) {
+            Worker worker = new Worker(users, measureFrom, end);
+            worker.setName("loadtest-worker-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        Map<String, LatencyRecorder> merged = new TreeMap<>();
+        for (Worker worker : workers) {
+            worker.join();
+            worker.recorders.forEach((endpoint, recorder) ->
+                    merged.computeIfAbsent(endpoint, e -> new LatencyRecorder()).merge(recorder));
+        }
+
+        LoadTestReport report = new LoadTestReport();
+        merged.forEach((endpoint, recorder) -> report.add(endpoint, recorder, scenario.getDurationSeconds()));
+        return report;
+    }
+
+    private List<VirtualUser> createUsers() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        int authenticated = (int) Math.round(scenario.getUsers() * scenario.getAuthenticatedRatio());
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < scenario.getUsers(); i++) {
+            if (i < authenticated) {
+                String username = "loadtest-" + runId + "-" + i;
+                String credentials = objectMapper.writeValueAsString(Map.of("username", username, "password", "loadtest-password"));
+                send(post("/api/signup", credentials).build());
+                HttpResponse<String> login = send(post("/api/login", credentials).build());
+                JsonNode body = objectMapper.readTree(login.body());
+                users.add(new VirtualUser(body.path("token").asText(), null));
+            } else {
+                users.add(new VirtualUser(null, UUID.randomUUID().toString()));
+            }
+        }
+        return users;
+    }
+
+    private HttpRequest buildRequest(String endpoint, VirtualUser user, Random random) throws Exception {
+        HttpRequest.Builder builder;
+        if (endpoint.equals("history")) {
+            String query = scenario.getHistoryQuery();
+            builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/history" + (query.isEmpty() ? "" : "?" + query))).GET();
+        } else {
+            int length = scenario.pickTextLength(random);
+            int offset = random.nextInt(corpus.length() - length);
+            String body = objectMapper.writeValueAsString(Map.of("text", corpus.substring(offset, offset + length)));
+            builder = post("/api/" + endpoint, body);
+        }
+        if (user.token != null) {
+            builder.header("Authorization", "Bearer " + user.token);
+        } else {
+            builder.header("Session-Id", user.sessionId);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String buildCorpus(int length) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(length + 32);
+        int wordsInSentence = 0;
+        while (text.length() < length) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            text.append(wordsInSentence == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            wordsInSentence++;
+            if (wordsInSentence > 6 && random.nextInt(8) == 0) {
+                text.append(random.nextInt(20) == 0 ? "?\n" : ". ");
+                wordsInSentence = 0;
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    private record VirtualUser(String token, String sessionId) {
+    }
+
+    private final class Worker extends Thread {
+        private final List<VirtualUser> users;
+        private final long measureFrom;
+        private final long end;
+        private final Map<String, LatencyRecorder> recorders = new HashMap<>();
+
+        Worker(List<VirtualUser> users, long measureFrom, long end) {
+            this.users = users;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            Random random = ThreadLocalRandom.current();
+            while (System.nanoTime() < end) {
+                VirtualUser user = users.get(random.nextInt(users.size()));
+                String endpoint = scenario.pickEndpoint(random, user.token != null);
+                long started = 0;
+                boolean ok;
+                try {
+                    // Build (and serialize) the request outside the measured interval
+                    HttpRequest request = buildRequest(endpoint, user, random);
+                    started = System.nanoTime();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    ok = response.statusCode() < 400;
+                } catch (Exception e) {
+                    ok = false;
+                }
+                long finished = System.nanoTime();
+                if (started == 0) {
+                    started = finished;
+                }
+                if (started >= measureFrom) {
+                    LatencyRecorder recorder = recorders.computeIfAbsent(endpoint, k -> new LatencyRecorder());
+                    if (ok) {
+                        recorder.record(finished - started);
+                    } else {
+                        recorder.recordError();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.textmate.textmatebackend.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-endpoint results of one load-test run, stored as CSV so that runs of two builds can be compared.
+ */
+public class LoadTestReport {
+
+    private static final String HEADER = "endpoint,requests,errors,throughput_rps,p50_us,p99_us,p999_us";
+
+    private final Map<String, Row> rows = new LinkedHashMap<>();
+
+    public record Row(String endpoint, long requests, long errors, double throughput, double p50, double p99, double p999) {
+    }
+
+    public void add(String endpoint, LatencyRecorder recorder, double seconds) {
+        rows.put(endpoint, new Row(endpoint, recorder.getCount(), recorder.getErrors(), recorder.getCount() / seconds,
+                recorder.percentileMicros(0.50), recorder.percentileMicros(0.99), recorder.percentileMicros(0.999)));
+    }
+
+    public String format() {
+        StringBuilder out = new StringBuilder(String.format("%-12s %10s %8s %12s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        for (Row row : rows.values()) {
+            out.append(String.format("%-12s %10d %8d %12.1f %10.2f %10.2f %10.2f%n", row.endpoint(), row.requests(),
+                    row.errors(), row.throughput(), row.p50() / 1000, row.p99() / 1000, row.p999() / 1000));
+        }
+        return out.toString();
+    }
+
+    public void write(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (Row row : rows.values()) {
+            lines.add(String.format(java.util.Locale.ROOT, "%s,%d,%d,%.3f,%.1f,%.1f,%.1f", row.endpoint(), row.requests(),
+                    row.errors(), row.throughput(), row.p50(), row.p99(), row.p999()));
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, lines);
+    }
+
+    public static LoadTestReport read(Path file) throws IOException {
+        LoadTestReport report = new LoadTestReport();
+        List<String> lines = Files.readAllLines(file);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] f = line.split(",");
+            report.rows.put(f[0], new Row(f[0], Long.parseLong(f[1]), Long.parseLong(f[2]), Double.parseDouble(f[3]),
+                    Double.parseDouble(f[4]), Double.parseDouble(f[5]), Double.parseDouble(f[6])));
+        }
+        return report;
+    }
+
+    /**
+     * Compares a candidate run against a baseline run and prints the relative change per endpoint.
+     * @param maxRegressionPercent Allowed throughput drop or p99 increase before an endpoint counts as regressed.
+     * @return true if any endpoint regressed beyond the threshold or started failing requests.
+     */
+    public static boolean compare(LoadTestReport baseline, LoadTestReport candidate, double maxRegressionPercent) {
+        boolean regressed = false;
+        System.out.printf("%-12s %12s %12s %10s %12s %12s %10s%n",
+                "endpoint", "base req/s", "cand req/s", "delta", "base p99 ms", "cand p99 ms", "delta");
+        for (Row base : baseline.rows.values()) {
+            Row cand = candidate.rows.get(base.endpoint());
+            if (cand == null) {
+                System.out.printf("%-12s missing in candidate run%n", base.endpoint());
+                continue;
+            }
+            double throughputDelta = percentChange(base.throughput(), cand.throughput());
+            double p99Delta = percentChange(base.p99(), cand.p99());
+            boolean endpointRegressed = -throughputDelta > maxRegressionPercent || p99Delta > maxRegressionPercent
+                    || (base.errors() == 0 && cand.errors() > 0);
+            regressed |= endpointRegressed;
+            System.out.printf("%-12s %12.1f %12.1f %+9.1f%% %12.2f %12.2f %+9.1f%%%s%n", base.endpoint(),
+                    base.throughput(), cand.throughput(), throughputDelta, base.p99() / 1000, cand.p99() / 1000, p99Delta,
+                    endpointRegressed ? "  REGRESSION" : "");
+        }
+        return regressed;
+    }
+
+    private static double percentChange(double base, double candidate) {
+        return base == 0 ? 0 : (candidate - base) * 100.0 / base;
+    }
+}
@@ -0,0 +1,149 @@
+package com.textmate.textmatebackend.loadtest;
+
+import com.textmate.textmatebackend.config.ShardingProperties;
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.User;
+import com.textmate.textmatebackend.repository.ShardedJdbcOperationLogSink;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Append throughput of the sharded operation log for several shard counts, with one embedded H2
+ * database per shard. All shards share this JVM's CPUs, so the numbers show how much per-database
+ * contention sharding removes, not the scaling of separate MySQL primaries.
+ *
+ * <pre>
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=com.textmate.textmatebackend.loadtest.ShardThroughputBenchmark
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=... -Dexec.args="--shards=1,2,4,8 --threads=32 --duration-seconds=20"
+ * </pre>
+ * After each run the history of every user is read back and the entry counts are checked.
+ */
+public class ShardThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int textBytes = Integer.parseInt(options.getOrDefault("text-bytes", "512"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "3"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "10"));
+        double anonymousRatio = Double.parseDouble(options.getOrDefault("anonymous-ratio", "0.3"));
+
+        StringBuilder report = new StringBuilder(String.format("%n%-8s %12s %10s %10s %10s%n", "shards", "appends/s", "p50 us", "p99 us", "p999 us"));
+        for (String shardCount : options.getOrDefault("shards", "1,2,4").split(",")) {
+            int count = Integer.parseInt(shardCount.trim());
+            ShardedJdbcOperationLogSink sink = new ShardedJdbcOperationLogSink(properties(count, threads));
+            try {
+                String text = "x".repeat(textBytes);
+                long measureFrom = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+                long end = measureFrom + Duration.ofSeconds(durationSeconds).toNanos();
+
+                List<Worker> workers = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    Worker worker = new Worker(sink, users, anonymousRatio, text, measureFrom, end);
+                    workers.add(worker);
+                    worker.start();
+                }
+                LatencyRecorder merged = new LatencyRecorder();
+                long[] perUser = new long[users];
+                for (Worker worker : workers) {
+                    worker.join();
+                    merged.merge(worker.recorder);
+                    for (int u = 0; u < users; u++) {
+                        perUser[u] += worker.perUser[u];
+                    }
+                }
+                for (int u = 0; u < users; u++) {
+                    int stored = sink.findByUserId((long) u + 1).size();
+                    if (stored != perUser[u]) {
+                        throw new IllegalStateException("User " + (u + 1) + " has " + stored + " entries, expected " + perUser[u]);
+                    }
+                }
+                report.append(String.format("%-8d %12.0f %10.0f %10.0f %10.0f%n", count,
+                        merged.getCount() / (double) durationSeconds, merged.percentileMicros(0.50),
+                        merged.percentileMicros(0.99), merged.percentileMicros(0.999)));
+            } finally {
+                sink.close();
+            }
+        }
+        System.out.print(report);
+        System.exit(0);
+    }
+
+    private static ShardingProperties properties(int count, int threads) {
+        ShardingProperties properties = new ShardingProperties();
+        String run = Long.toString(System.nanoTime(), 36);
+        for (int i = 0; i < count; i++) {
+            ShardingProperties.Shard shard = new ShardingProperties.Shard();
+            shard.setUrl("jdbc:h2:mem:shard-bench-" + run + "-" + i + ";MODE=MySQL");
+            shard.setUsername("sa");
+            shard.setPassword("");
+            shard.setMaxPoolSize(threads);
+            properties.getShards().add(shard);
+        }
+        return properties;
+    }
+
+    private static final class Worker extends Thread {
+        private final ShardedJdbcOperationLogSink sink;
+        private final int users;
+        private final double anonymousRatio;
+        private final String text;
+        private final long measureFrom;
+        private final long end;
+        private final LatencyRecorder recorder = new LatencyRecorder();
+        private final long[] perUser;
+
+        Worker(ShardedJdbcOperationLogSink sink, int users, double anonymousRatio, String text, long measureFrom, long end) {
+            this.sink = sink;
+            this.users = users;
+            this.anonymousRatio = anonymousRatio;
+            this.text = text;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.perUser = new long[users];
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                OperationLog log = new OperationLog();
+                log.setOperationType("uppercase");
+                log.setOriginalText(text);
+                log.setTransformedText(text);
+                log.setTimestamp(LocalDateTime.now());
+                int userIndex = -1;
+                if (random.nextDouble() < anonymousRatio) {
+                    log.setSessionId("session-" + random.nextInt(users * 4));
+                } else {
+                    userIndex = random.nextInt(users);
+                    User user = new User();
+                    user.setId((long) userIndex + 1);
+                    user.setUsername("bench-" + (userIndex + 1));
+                    log.setUser(user);
+                }
+                sink.append(log);
+                if (userIndex >= 0) {
+                    perUser[userIndex]++;
+                }
+                if (now >= measureFrom) {
+                    recorder.record(System.nanoTime() - now);
+                }
+            }
+        }
+    }
+}
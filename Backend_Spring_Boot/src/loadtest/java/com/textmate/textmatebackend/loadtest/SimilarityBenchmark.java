@@ -0,0 +1,248 @@
+package com.textmate.textmatebackend.loadtest;
+
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.OperationLogSignature;
+import com.textmate.textmatebackend.model.OperationLogTexts;
+import com.textmate.textmatebackend.repository.OperationLogSink;
+import com.textmate.textmatebackend.service.SimilarityIndex;
+import com.textmate.textmatebackend.util.MinHash;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Near-duplicate lookup in one user's history: builds the {@link SimilarityIndex} over a synthetic
+ * history of distinct documents and lightly edited copies, then reports the time spent signing the
+ * entries as they are written, the time to build the index from the stored signatures, the lookup
+ * latency against a linear scan of all signatures, and the recall of the index at the default
+ * threshold, measured against the exact Jaccard similarity of the shingle sets.
+ *
+ * <pre>
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=com.textmate.textmatebackend.loadtest.SimilarityBenchmark
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=... -Dexec.args="--entries=10000 --text-chars=2000 --queries=2000 --recall-queries=50"
+ * </pre>
+ * The history sink is an in-memory list, so only the index itself is measured.
+ */
+public class SimilarityBenchmark {
+
+    private static final int SHINGLE_CHARS = 5;
+    private static final int BANDS = 32;
+    private static final int ROWS = 4;
+    private static final double THRESHOLD = 0.5;
+
+    // Keeps the JIT from dropping the linear scan
+    private static volatile double blackhole;
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int entries = Integer.parseInt(options.getOrDefault("entries", "10000"));
+        int textChars = Integer.parseInt(options.getOrDefault("text-chars", "2000"));
+        int queries = Integer.parseInt(options.getOrDefault("queries", "2000"));
+
+        // Every tenth entry is an edited copy of an earlier one, with 1 to 20% of its words changed
+        Random random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            vocabulary.add(randomWord(random));
+        }
+        List<OperationLog> history = new ArrayList<>();
+        SimilarityIndex index = new SimilarityIndex(new InMemorySink(history), SHINGLE_CHARS, BANDS, ROWS, entries, Long.MAX_VALUE);
+        long signingNanos = 0;
+        for (int i = 0; i < entries; i++) {
+            String text = i >= 10 && i % 10 == 0
+                    ? edit(history.get(random.nextInt(i)).getOriginalText(), 0.01 + random.nextDouble() * 0.19, vocabulary, random)
+                    : randomText(textChars, vocabulary, random);
+            OperationLog log = new OperationLog();
+            log.setId((long) i + 1);
+            log.setOperationType("analyze");
+            log.setOriginalText(text);
+            log.setTimestamp(LocalDateTime.now());
+            long signStart = System.nanoTime();
+            log.setSimilaritySignature(index.sign(text));
+            signingNanos += System.nanoTime() - signStart;
+            history.add(log);
+        }
+        System.out.printf("%nSigned %d entries of %d chars on write in %.0f ms in total%n", entries, textChars, signingNanos / 1e6);
+
+        long buildStart = System.nanoTime();
+        index.findSimilar(1L, history.get(0).getOriginalText(), THRESHOLD, 10);
+        System.out.printf("Indexed their stored signatures in %.0f ms%n", (System.nanoTime() - buildStart) / 1e6);
+
+        // Queries are fresh edits of random entries, so each has at least one true near-duplicate
+        List<String> queryTexts = new ArrayList<>();
+        for (int i = 0; i < queries; i++) {
+            queryTexts.add(edit(history.get(random.nextInt(entries)).getOriginalText(), random.nextDouble() * 0.3, vocabulary, random));
+        }
+        MinHash minHash = new MinHash(BANDS * ROWS, SHINGLE_CHARS);
+        List<int[]> signatures = history.stream().map(log -> minHash.signature(log.getOriginalText())).toList();
+        LatencyRecorder signing = new LatencyRecorder();
+        LatencyRecorder lookup = new LatencyRecorder();
+        LatencyRecorder scan = new LatencyRecorder();
+        for (int round = 0; round < 2; round++) {
+            for (String query : queryTexts) {
+                long start = System.nanoTime();
+                int[] signature = minHash.signature(query);
+                long signed = System.nanoTime();
+                index.findSimilar(1L, query, THRESHOLD, 10);
+                long looked = System.nanoTime();
+                double best = 0;
+                for (int[] candidate : signatures) {
+                    best = Math.max(best, MinHash.similarity(signature, candidate));
+                }
+                blackhole = best;
+                if (round == 1) {
+                    // The index signs the query itself, so its share is subtracted from the lookup
+                    signing.record(signed - start);
+                    lookup.record(Math.max(looked - signed - (signed - start), 0));
+                    scan.record(System.nanoTime() - looked);
+                }
+            }
+        }
+        System.out.printf("%n%-28s %10s %10s%n", "per query", "p50 us", "p99 us");
+        System.out.printf("%-28s %10.1f %10.1f%n", "sign query text", signing.percentileMicros(0.50), signing.percentileMicros(0.99));
+        System.out.printf("%-28s %10.1f %10.1f%n", "LSH candidates + verify", lookup.percentileMicros(0.50), lookup.percentileMicros(0.99));
+        System.out.printf("%-28s %10.1f %10.1f%n", "linear scan of signatures", scan.percentileMicros(0.50), scan.percentileMicros(0.99));
+
+        // Recall against the exact Jaccard similarity, on a sample so the exact pass stays affordable
+        int sample = Math.min(queries, Integer.parseInt(options.getOrDefault("recall-queries", "50")));
+        List<long[]> shingleSets = history.stream().map(log -> shingles(log.getOriginalText())).toList();
+        int relevant = 0, found = 0;
+        double maxError = 0;
+        for (String query : queryTexts.subList(0, sample)) {
+            long[] queryShingles = shingles(query);
+            int[] querySignature = minHash.signature(query);
+            Set<Long> returned = new HashSet<>();
+            index.findSimilar(1L, query, THRESHOLD, Integer.MAX_VALUE).forEach(match -> returned.add(match.getId()));
+            for (int i = 0; i < entries; i++) {
+                double exact = jaccard(queryShingles, shingleSets.get(i));
+                if (exact >= THRESHOLD + 0.1) {
+                    relevant++;
+                    if (returned.contains(history.get(i).getId())) {
+                        found++;
+                    }
+                }
+                if (exact > 0.2) {
+                    maxError = Math.max(maxError, Math.abs(exact - MinHash.similarity(querySignature, signatures.get(i))));
+                }
+            }
+        }
+        System.out.printf("%nRecall for exact similarity >= %.1f: %d of %d (%.1f%%); largest estimate error %.3f%n",
+                THRESHOLD + 0.1, found, relevant, relevant == 0 ? 100.0 : 100.0 * found / relevant, maxError);
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 3 + random.nextInt(7); i > 0; i--) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    private static String randomText(int chars, List<String> vocabulary, Random random) {
+        StringBuilder text = new StringBuilder(chars + 16);
+        while (text.length() < chars) {
+            text.append(vocabulary.get(random.nextInt(vocabulary.size()))).append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        return text.toString();
+    }
+
+    private static String edit(String text, double ratio, List<String> vocabulary, Random random) {
+        String[] words = text.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            if (random.nextDouble() < ratio) {
+                words[i] = vocabulary.get(random.nextInt(vocabulary.size()));
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    // Same normalization and shingling as MinHash; distinct shingles as sorted 64-bit hashes
+    private static long[] shingles(String text) {
+        String normalized = text.trim().replaceAll("\\s+", " ").toLowerCase();
+        Set<Long> hashes = new HashSet<>();
+        for (int i = 0; i + SHINGLE_CHARS <= normalized.length(); i++) {
+            long hash = 0;
+            for (int j = i; j < i + SHINGLE_CHARS; j++) {
+                hash = MinHash.mix(hash * 31 + normalized.charAt(j));
+            }
+            hashes.add(hash);
+        }
+        return hashes.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static double jaccard(long[] a, long[] b) {
+        int common = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    private static final class InMemorySink implements OperationLogSink {
+        private final List<OperationLog> history;
+
+        InMemorySink(List<OperationLog> history) {
+            this.history = history;
+        }
+
+        @Override
+        public OperationLog append(OperationLog log) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<OperationLog> findByUserId(Long userId) {
+            return history;
+        }
+
+        @Override
+        public List<OperationLog> findPageByUserId(Long userId, int page, int size) {
+            List<OperationLog> newestFirst = new ArrayList<>(history);
+            Collections.reverse(newestFirst);
+            return newestFirst.subList(Math.min(page * size, newestFirst.size()), Math.min(page * size + size, newestFirst.size()));
+        }
+
+        @Override
+        public Optional<OperationLogTexts> findTextsForUser(Long userId, Long id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<OperationLogSignature> findSignaturesByUserId(Long userId, int limit) {
+            List<OperationLogSignature> signatures = new ArrayList<>();
+            for (int i = history.size() - 1; i >= Math.max(history.size() - limit, 0); i--) {
+                OperationLog log = history.get(i);
+                signatures.add(new OperationLogSignature(log.getId(), log.getOperationType(), log.getTimestamp(),
+                        log.getSimilaritySignature(), log.getSimilaritySignature() == null ? log.getOriginalText() : null));
+            }
+            return signatures;
+        }
+
+        @Override
+        public String historyVersion(Long userId) {
+            return history.size() + "-" + (history.isEmpty() ? 0 : history.get(history.size() - 1).getId());
+        }
+    }
+}
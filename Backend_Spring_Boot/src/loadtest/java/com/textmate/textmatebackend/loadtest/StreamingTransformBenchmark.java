@@ -0,0 +1,219 @@
+package com.textmate.textmatebackend.loadtest;
+
+import com.textmate.textmatebackend.TextmateBackendApplication;
+import com.textmate.textmatebackend.util.TextUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks and measures {@code /api/stream/*} on an embedded instance (profile "loadtest").
+ *
+ * First, with tiny windows and memory threshold so that nearly every window boundary falls inside
+ * a word or a multi-byte code point, randomized texts (ASCII, Latin-1, Greek with final sigma,
+ * surrogate pairs) are streamed and compared with the whole-text transforms of {@link TextUtils}.
+ * Long runs of supplementary chars without whitespace, shifted by one char at a time, put surrogate
+ * pairs across every conversion piece boundary, with tiny windows and again with the defaults.
+ * Then a large file is streamed through each operation with the default windows, reporting the
+ * throughput and the peak heap in use, which should stay far below the file size.
+ *
+ * <pre>
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=com.textmate.textmatebackend.loadtest.StreamingTransformBenchmark
+ *   mvn -Ploadtest compile exec:java -Dloadtest.main=... -Dexec.args="--file-mb=512 --checks=500"
+ * </pre>
+ * Run it with a small heap (e.g. {@code MAVEN_OPTS=-Xmx256m}) to see that the file size is not bounded by it.
+ */
+public class StreamingTransformBenchmark {
+
+    private static final String[] OPERATIONS = {"uppercase", "lowercase", "reverse"};
+    private static final String[] SPECIAL = {"é", "ß", "Σ", "σ", "ς", "ΟΔΟΣ", "𐐀", "😀", "\u0085", "\r\n", "  "};
+    // Emoji (uncased), Deseret capital and small letters (cased, outside the BMP)
+    private static final String[] SUPPLEMENTARY = {"😀", "𐐀", "𐐨"};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int checks = Integer.parseInt(options.getOrDefault("checks", "300"));
+        int fileMb = Integer.parseInt(options.getOrDefault("file-mb", "256"));
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        Random random = new Random(42);
+        try (Instance instance = new Instance("--textmate.stream.window-bytes=16", "--textmate.stream.memory-threshold-bytes=64")) {
+            for (int i = 0; i < checks; i++) {
+                checkAll(client, instance, randomText(random, random.nextInt(400) + 1));
+            }
+            for (String text : supplementaryRuns(40)) {
+                checkAll(client, instance, text);
+            }
+        }
+        System.out.printf("%n%d randomized texts and supplementary runs: streamed results identical to the whole-text transforms%n", checks);
+        try (Instance instance = new Instance()) {
+            for (String text : supplementaryRuns(5000)) {
+                checkAll(client, instance, text);
+            }
+        }
+        System.out.println("Supplementary runs across default-sized pieces: streamed results identical");
+
+        Path file = Files.createTempFile("stream-bench-", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            String block = randomText(random, 1 << 16);
+            long target = (long) fileMb << 20;
+            for (long written = 0; written < target; written += block.getBytes(StandardCharsets.UTF_8).length) {
+                writer.write(block);
+            }
+        }
+        String inputSha256 = sha256(Files.newInputStream(file));
+        StringBuilder report = new StringBuilder(String.format("%n%-10s %10s %10s %16s%n", "operation", "MB", "MB/s", "peak heap MB"));
+        try (Instance instance = new Instance()) {
+            for (String operation : OPERATIONS) {
+                resetPeakHeap();
+                long start = System.nanoTime();
+                HttpResponse<InputStream> response = client.send(instance.request(operation, HttpRequest.BodyPublishers.ofFile(file)),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                sha256(response.body());
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (response.statusCode() != 200 || !inputSha256.equals(response.headers().firstValue("X-Input-SHA256").orElse(null))) {
+                    throw new IllegalStateException(operation + " failed with status " + response.statusCode());
+                }
+                double mb = Files.size(file) / 1048576.0;
+                report.append(String.format("%-10s %10.0f %10.0f %16.0f%n", operation, mb, mb / seconds, peakHeap() / 1048576.0));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.print(report);
+        System.exit(0);
+    }
+
+    private static void checkAll(HttpClient client, Instance instance, String text) throws IOException, InterruptedException {
+        for (String operation : OPERATIONS) {
+            HttpResponse<String> response = client.send(instance.request(operation, HttpRequest.BodyPublishers.ofString(text, StandardCharsets.UTF_8)),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            String expected = switch (operation) {
+                case "uppercase" -> TextUtils.toUpperCase(text);
+                case "lowercase" -> TextUtils.toLowerCase(text);
+                default -> TextUtils.reverseText(text);
+            };
+            if (response.statusCode() != 200 || !response.body().equals(expected)) {
+                String shown = text.length() > 400 ? escape(text.substring(0, 40)) + "... (" + text.length() + " chars)" : escape(text);
+                throw new IllegalStateException(operation + " differs for " + shown + ": status " + response.statusCode()
+                        + (text.length() > 400 ? "" : ", expected " + escape(expected) + ", streamed " + escape(response.body())));
+            }
+        }
+    }
+
+    // Runs of one supplementary char, after 0 to 2 ASCII chars so the pairs fall on both sides of each cut
+    private static List<String> supplementaryRuns(int repeat) {
+        List<String> texts = new ArrayList<>();
+        for (String supplementary : SUPPLEMENTARY) {
+            for (int shift = 0; shift < 3; shift++) {
+                texts.add("x".repeat(shift) + supplementary.repeat(repeat));
+            }
+        }
+        return texts;
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 8);
+        while (text.length() < length) {
+            int pick = random.nextInt(20);
+            if (pick == 0) {
+                text.append(SPECIAL[random.nextInt(SPECIAL.length)]);
+            } else if (pick < 4) {
+                text.append(' ');
+            } else {
+                text.append((char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26)));
+            }
+        }
+        return text.toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            escaped.append(c >= 0x20 && c < 0x7F ? String.valueOf(c) : String.format("\\u%04X", (int) c));
+        }
+        return escaped.append('"').toString();
+    }
+
+    private static String sha256(InputStream in) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (in) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Client and server share this JVM, so this is an upper bound of the server's heap use
+    private static void resetPeakHeap() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long peakHeap() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static final class Instance implements AutoCloseable {
+        private final ConfigurableApplicationContext context;
+        private final Path historyDir;
+        private final String baseUrl;
+
+        Instance(String... extraArgs) throws IOException {
+            historyDir = Files.createTempDirectory("stream-bench-history");
+            String[] args = new String[extraArgs.length + 3];
+            args[0] = "--server.port=0";
+            args[1] = "--textmate.history.sink=segmented-log";
+            args[2] = "--textmate.history.log.dir=" + historyDir;
+            System.arraycopy(extraArgs, 0, args, 3, extraArgs.length);
+            context = new SpringApplicationBuilder(TextmateBackendApplication.class).profiles("loadtest").run(args);
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        HttpRequest request(String operation, HttpRequest.BodyPublisher body) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/stream/" + operation))
+                    .header("Content-Type", "text/plain; charset=UTF-8")
+                    .header("Session-Id", "bench-stream")
+                    .POST(body)
+                    .build();
+        }
+
+        @Override
+        public void close() {
+            context.close();
+        }
+    }
+}
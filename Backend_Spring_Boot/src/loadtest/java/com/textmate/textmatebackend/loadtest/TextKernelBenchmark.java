@@ -0,0 +1,135 @@
+package com.textmate.textmatebackend.loadtest;
+
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+import com.textmate.textmatebackend.util.TextKernels;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Compares the Vector API text kernels with the scalar ones: first checks that both give identical
+ * results on randomized inputs (ASCII, Latin-1, Greek capital sigma, surrogate pairs, all kinds of
+ * whitespace and sentence breaks, and the Turkish locale), then measures throughput per operation.
+ *
+ * <pre>
+ *   MAVEN_OPTS="--add-modules jdk.incubator.vector" mvn -Psimd,loadtest compile exec:java \
+ *       -Dloadtest.main=com.textmate.textmatebackend.loadtest.TextKernelBenchmark
+ *   ... -Dexec.args="--text-chars=4096 --checks=200000 --duration-seconds=5"
+ * </pre>
+ */
+public class TextKernelBenchmark {
+
+    private static final String ASCII_ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789     .,;!?\n\r\t\u000B\f-'\"";
+    private static final String[] SPECIAL = {"é", "ß", "Σ", "σ", "İ", "ı", "ŉ", "ǅ", "𐐀", "😀", "\u0001", "\u0085", " ", " ", "̇"};
+
+    // Keeps the JIT from dropping the measured calls
+    private static volatile long blackhole;
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int textChars = Integer.parseInt(options.getOrDefault("text-chars", "4096"));
+        int checks = Integer.parseInt(options.getOrDefault("checks", "100000"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "3"));
+
+        TextKernels scalar = TextKernels.scalar();
+        TextKernels vector = TextKernels.vector().orElseThrow(() -> new IllegalStateException(
+                "Vector kernels unavailable: build with -Psimd and run with --add-modules jdk.incubator.vector"));
+
+        Random random = new Random(42);
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            for (Locale locale : new Locale[]{Locale.ROOT, Locale.ENGLISH, new Locale("tr"), new Locale("lt")}) {
+                Locale.setDefault(locale);
+                for (int i = 0; i < checks; i++) {
+                    String text = randomText(random, random.nextInt(200), random.nextInt(4) == 0 ? 0.2 : 0.01);
+                    check("uppercase", text, scalar::toUpperCase, vector::toUpperCase);
+                    check("lowercase", text, scalar::toLowerCase, vector::toLowerCase);
+                    check("analyze", text, scalar::analyzeText, vector::analyzeText);
+                }
+            }
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+        System.out.printf("%d randomized texts per locale: vector and scalar results identical%n", checks);
+
+        StringBuilder report = new StringBuilder(String.format("%n%-10s %-10s %14s %14s %9s%n", "input", "operation", "scalar MB/s", "vector MB/s", "speedup"));
+        for (String input : new String[]{"ascii", "mixed"}) {
+            String text = randomText(random, textChars, input.equals("ascii") ? 0 : 0.02);
+            report.append(row(input, "uppercase", text, durationSeconds, scalar::toUpperCase, vector::toUpperCase));
+            report.append(row(input, "lowercase", text, durationSeconds, scalar::toLowerCase, vector::toLowerCase));
+            report.append(row(input, "analyze", text, durationSeconds, scalar::analyzeText, vector::analyzeText));
+        }
+        System.out.print(report);
+    }
+
+    private static String randomText(Random random, int length, double specialRatio) {
+        StringBuilder text = new StringBuilder(length + 2);
+        while (text.length() < length) {
+            if (random.nextDouble() < specialRatio) {
+                text.append(SPECIAL[random.nextInt(SPECIAL.length)]);
+            } else {
+                text.append(ASCII_ALPHABET.charAt(random.nextInt(ASCII_ALPHABET.length())));
+            }
+        }
+        return text.toString();
+    }
+
+    private static <T> void check(String operation, String text, Function<String, T> scalar, Function<String, T> vector) {
+        T expected = scalar.apply(text);
+        T actual = vector.apply(text);
+        if (!Objects.equals(expected, actual)) {
+            throw new IllegalStateException(operation + " differs in locale " + Locale.getDefault() + " for "
+                    + escape(text) + ": scalar " + describe(expected) + ", vector " + describe(actual));
+        }
+    }
+
+    private static String describe(Object result) {
+        return result instanceof TextAnalysisResult ? result.toString() : escape(String.valueOf(result));
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            escaped.append(c >= 0x20 && c < 0x7F ? String.valueOf(c) : String.format("\\u%04X", (int) c));
+        }
+        return escaped.append('"').toString();
+    }
+
+    private static String row(String input, String operation, String text, int durationSeconds,
+                              Function<String, ?> scalar, Function<String, ?> vector) {
+        double scalarRate = throughput(text, durationSeconds, scalar);
+        double vectorRate = throughput(text, durationSeconds, vector);
+        return String.format("%-10s %-10s %14.0f %14.0f %8.1fx%n", input, operation, scalarRate, vectorRate, vectorRate / scalarRate);
+    }
+
+    // UTF-16 megabytes per second, after a warmup of the same length
+    private static double throughput(String text, int durationSeconds, Function<String, ?> kernel) {
+        long sink = 0;
+        long warmupEnd = System.nanoTime() + durationSeconds * 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            sink += kernel.apply(text).hashCode();
+        }
+        long calls = 0;
+        long start = System.nanoTime();
+        long end = start + durationSeconds * 1_000_000_000L;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            for (int i = 0; i < 64; i++) {
+                sink += kernel.apply(text).hashCode();
+            }
+            calls += 64;
+        }
+        blackhole = sink;
+        return calls * text.length() * 2.0 / 1_000_000 / ((now - start) / 1e9);
+    }
+}
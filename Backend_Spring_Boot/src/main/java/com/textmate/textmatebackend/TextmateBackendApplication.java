@@ -1,5 +1,6 @@
 package com.textmate.textmatebackend;
 
+import com.textmate.textmatebackend.config.StartupTimingReporter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -7,7 +8,10 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class TextmateBackendApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(TextmateBackendApplication.class, args);
+        SpringApplication application = new SpringApplication(TextmateBackendApplication.class);
+        // Switches on startup step recording when textmate.startup.report=true
+        application.addListeners(new StartupTimingReporter());
+        application.run(args);
     }
 
 }
@@ -0,0 +1,94 @@
+package com.textmate.textmatebackend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves analysis results written before the typed {@code analysis_*} columns existed out of the
+ * legacy {@code operation_logs.analysis_result_json} column. Rows are converted in ID order and
+ * batches; the JSON is cleared once converted, so the migration can be interrupted and rerun.
+ * It does nothing if the legacy column is absent, so the column can be dropped after a clean run.
+ */
+@Component
+@ConditionalOnProperty(name = "textmate.history.sink", havingValue = "jpa", matchIfMissing = true)
+public class AnalysisColumnMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisColumnMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public AnalysisColumnMigration(JdbcTemplate jdbcTemplate,
+                                   ObjectMapper objectMapper,
+                                   @Value("${textmate.history.analysis-migration.enabled:true}") boolean enabled,
+                                   @Value("${textmate.history.analysis-migration.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || !legacyColumnExists()) {
+            return;
+        }
+        long lastId = 0;
+        int migrated = 0;
+        int unreadable = 0;
+        while (true) {
+            // getString rather than getObject, since TEXT columns may come back as CLOBs
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, analysis_result_json FROM operation_logs "
+                            + "WHERE id > ? AND analysis_result_json IS NOT NULL ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)}, lastId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                long id = (Long) row[0];
+                lastId = id;
+                try {
+                    TextAnalysisResult analysis = objectMapper.readValue((String) row[1], TextAnalysisResult.class);
+                    updates.add(new Object[]{analysis.getWordCount(), analysis.getCharCount(),
+                            analysis.getSentenceCount(), analysis.getReadTime(), id});
+                } catch (IOException e) {
+                    // Left in place for manual inspection; later runs report it again
+                    logger.warn("Could not migrate the analysis of operation log {}: {}", id, e.getMessage());
+                    unreadable++;
+                }
+            }
+            jdbcTemplate.batchUpdate("UPDATE operation_logs SET analysis_word_count = ?, analysis_char_count = ?, "
+                    + "analysis_sentence_count = ?, analysis_read_time = ?, analysis_result_json = NULL WHERE id = ?", updates);
+            migrated += updates.size();
+        }
+        if (migrated > 0 || unreadable > 0) {
+            logger.info("Migrated {} analysis results to typed columns, {} unreadable left in analysis_result_json", migrated, unreadable);
+        }
+    }
+
+    private boolean legacyColumnExists() {
+        try {
+            jdbcTemplate.queryForList("SELECT analysis_result_json FROM operation_logs WHERE 1 = 0");
+            return true;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+}
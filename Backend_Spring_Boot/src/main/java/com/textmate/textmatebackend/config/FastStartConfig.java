@@ -0,0 +1,33 @@
+package com.textmate.textmatebackend.config;
+
+import com.textmate.textmatebackend.monitoring.JfrRecordingService;
+import com.textmate.textmatebackend.protocol.BinaryProtocolServer;
+import com.textmate.textmatebackend.repository.OperationLogSink;
+import com.textmate.textmatebackend.service.CorpusJobService;
+import com.textmate.textmatebackend.service.DictionaryService;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.web.SecurityFilterChain;
+
+@Configuration
+public class FastStartConfig {
+
+    /**
+     * Beans that stay eager when spring.main.lazy-initialization is on (fast-start profile):
+     * the security chain guards the first request, the entity manager factory starts its deferred
+     * bootstrap in the background, and the log sink recovers its local files before traffic arrives.
+     * Beans with startup work of their own stay eager as well, so it does not wait for their first
+     * use: interrupted corpus jobs resume at boot, the JFR recording covers startup, an unreadable
+     * dictionary fails the startup instead of the first masking request, and the binary protocol
+     * listener, which nothing injects, binds its port at all.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                SecurityFilterChain.class, JwtAuthFilter.class, EntityManagerFactory.class, OperationLogSink.class,
+                CorpusJobService.class, JfrRecordingService.class, DictionaryService.class,
+                BinaryProtocolServer.class);
+    }
+}
@@ -1,5 +1,7 @@
 package com.textmate.textmatebackend.config;
 
+import com.textmate.textmatebackend.monitoring.TokenCheckEvent;
+import com.textmate.textmatebackend.monitoring.UserLookupEvent;
 import com.textmate.textmatebackend.service.CustomUserDetailsService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -35,10 +37,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+            if (StringUtils.hasText(jwt) && validateToken(jwt)) {
                 String username = tokenProvider.getUsernameFromJWT(jwt);
 
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = loadUser(username);
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -52,6 +54,25 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private boolean validateToken(String jwt) {
+        TokenCheckEvent event = TokenCheckEvent.start();
+        boolean valid = tokenProvider.validateToken(jwt);
+        TokenCheckEvent.finish(event, valid);
+        return valid;
+    }
+
+    private UserDetails loadUser(String username) {
+        UserLookupEvent event = UserLookupEvent.start();
+        boolean found = false;
+        try {
+            UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
+            found = true;
+            return userDetails;
+        } finally {
+            UserLookupEvent.finish(event, found);
+        }
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
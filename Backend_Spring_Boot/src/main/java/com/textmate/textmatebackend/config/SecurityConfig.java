@@ -71,7 +71,9 @@ public class SecurityConfig {
                 .requestMatchers(
                     // These endpoints are accessible to everyone (authenticated or anonymous)
                     "/api/login", "/api/signup",
-                    "/api/uppercase", "/api/lowercase", "/api/titlecase", "/api/reverse", "/api/analyze"
+                    "/api/uppercase", "/api/lowercase", "/api/titlecase", "/api/reverse", "/api/analyze",
+                    "/api/replace", "/api/diff", "/api/mask", "/api/highlight",
+                    "/api/stream/uppercase", "/api/stream/lowercase", "/api/stream/reverse"
                 ).permitAll()
                 // The history endpoint requires an authenticated user
                 .requestMatchers("/api/history").authenticated()
@@ -90,7 +92,9 @@ public class SecurityConfig {
         config.setAllowCredentials(true);
         config.setAllowedOriginPatterns(Collections.singletonList("*")); // Allows all origins
         // Added "X-Session-ID" to allowed headers so frontend can send it
-        config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Accept", "X-Session-ID"));
+        config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Accept", "X-Session-ID", "If-None-Match"));
+        // Expose ETag so clients can revalidate /api/history with If-None-Match
+        config.setExposedHeaders(Collections.singletonList("ETag"));
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setMaxAge(3600L);
 
@@ -0,0 +1,26 @@
+package com.textmate.textmatebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datasources used by the sharded operation log sink ({@code textmate.history.sink=sharded}).
+ * Shard 0 also stores the shard directory of users that were moved by the rebalancer.
+ */
+@Data
+@ConfigurationProperties(prefix = "textmate.history.sharding")
+public class ShardingProperties {
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private int maxPoolSize = 10;
+    }
+}
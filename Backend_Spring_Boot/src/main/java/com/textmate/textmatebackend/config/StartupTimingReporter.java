@@ -0,0 +1,116 @@
+package com.textmate.textmatebackend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs where startup time goes when {@code textmate.startup.report=true}: JVM uptime at each
+ * startup phase, the slowest bean instantiations, and the time to the first handled request.
+ * Registered from {@code TextmateBackendApplication#main} so that step recording can be switched
+ * on before the application context is created.
+ */
+public class StartupTimingReporter implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimingReporter.class);
+
+    private static final String ENABLED_PROPERTY = "textmate.startup.report";
+    private static final int TOP_STEPS = 15;
+
+    private final Map<String, Long> phaseUptimes = new LinkedHashMap<>();
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        if (!event.getEnvironment().getProperty(ENABLED_PROPERTY, Boolean.class, false)) {
+            return;
+        }
+        // Must happen before the context is created, which is right after this event
+        event.getSpringApplication().setApplicationStartup(new BufferingApplicationStartup(8192));
+        event.getSpringApplication().addListeners(new PhaseListener());
+        phaseUptimes.put("environment prepared", uptimeMillis());
+    }
+
+    private void report(ConfigurableApplicationContext context) {
+        phaseUptimes.put("ready", uptimeMillis());
+
+        StringBuilder report = new StringBuilder("Startup timing report (JVM uptime):");
+        phaseUptimes.forEach((phase, uptime) -> report.append(String.format("%n  %-22s %6d ms", phase, uptime)));
+
+        ApplicationStartup startup = context.getApplicationStartup();
+        if (startup instanceof BufferingApplicationStartup buffering) {
+            StartupTimeline timeline = buffering.getBufferedTimeline();
+            report.append(String.format("%n  slowest bean instantiations:"));
+            timeline.getEvents().stream()
+                    .filter(e -> e.getStartupStep().getName().equals("spring.beans.instantiate"))
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(TOP_STEPS)
+                    .forEach(e -> report.append(String.format("%n    %6d ms  %s",
+                            e.getDuration().toMillis(), tag(e.getStartupStep(), "beanName"))));
+
+            Map<String, Duration> totals = new LinkedHashMap<>();
+            timeline.getEvents().forEach(e -> totals.merge(e.getStartupStep().getName(), e.getDuration(), Duration::plus));
+            report.append(String.format("%n  total time per step (nested steps overlap):"));
+            totals.entrySet().stream()
+                    .sorted(Map.Entry.<String, Duration>comparingByValue().reversed())
+                    .limit(TOP_STEPS)
+                    .forEach(e -> report.append(String.format("%n    %6d ms  %s", e.getValue().toMillis(), e.getKey())));
+        }
+        logger.info(report.toString());
+    }
+
+    private static String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals(key)) {
+                return tag.getValue();
+            }
+        }
+        return step.getName();
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * Records the remaining startup phases and registers the first-request hook once the context exists.
+     */
+    private final class PhaseListener implements ApplicationListener<ApplicationEvent> {
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            if (event instanceof ApplicationStartedEvent started) {
+                phaseUptimes.put("context refreshed", uptimeMillis());
+                started.getApplicationContext().addApplicationListener(new FirstRequestListener());
+            } else if (event instanceof ApplicationReadyEvent ready) {
+                report(ready.getApplicationContext());
+            }
+        }
+    }
+
+    private final class FirstRequestListener implements ApplicationListener<ServletRequestHandledEvent> {
+        @Override
+        public void onApplicationEvent(ServletRequestHandledEvent event) {
+            if (firstRequestSeen.compareAndSet(false, true)) {
+                logger.info("Time to first request: {} ms of JVM uptime ({} {} took {} ms)",
+                        uptimeMillis(), event.getMethod(), event.getRequestUrl(), event.getProcessingTimeMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.textmate.textmatebackend.controller;
+
+import com.textmate.textmatebackend.model.ApiResponse;
+import com.textmate.textmatebackend.model.CorpusJob;
+import com.textmate.textmatebackend.model.User;
+import com.textmate.textmatebackend.service.CorpusJobService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "*")
+public class CorpusJobController {
+
+    private final CorpusJobService corpusJobService;
+
+    public CorpusJobController(CorpusJobService corpusJobService) {
+        this.corpusJobService = corpusJobService;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse> submitJob(Authentication auth,
+                                                 @RequestParam("file") MultipartFile file,
+                                                 @RequestParam("operation") String operation) {
+        if (!(auth != null && auth.getPrincipal() instanceof User user)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please log in to submit corpus jobs."), HttpStatus.UNAUTHORIZED);
+        }
+        if (file.isEmpty()) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please upload a non-empty .zip or NDJSON corpus."), HttpStatus.BAD_REQUEST);
+        }
+        if (!CorpusJobService.OPERATIONS.contains(operation)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Unsupported operation: " + operation), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            ApiResponse response = new ApiResponse(true, "Corpus job queued.");
+            response.setJob(corpusJobService.submit(user.getId(), file, operation));
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        } catch (IOException e) {
+            return new ResponseEntity<>(new ApiResponse(false, "Could not read the uploaded corpus: " + e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse> getJob(Authentication auth, @PathVariable String jobId) {
+        Optional<CorpusJob> job = findJob(auth, jobId);
+        if (job.isEmpty()) {
+            return new ResponseEntity<>(new ApiResponse(false, "Job not found."), HttpStatus.NOT_FOUND);
+        }
+        ApiResponse response = new ApiResponse(true, "Job " + job.get().getStatus().name().toLowerCase() + ".");
+        response.setJob(job.get());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<Resource> downloadResults(Authentication auth, @PathVariable String jobId) {
+        Optional<CorpusJob> job = findJob(auth, jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getStatus() != CorpusJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + jobId + "-results.ndjson\"")
+                .body(new FileSystemResource(corpusJobService.getResultsFile(job.get())));
+    }
+
+    private Optional<CorpusJob> findJob(Authentication auth, String jobId) {
+        if (!(auth != null && auth.getPrincipal() instanceof User user)) {
+            return Optional.empty();
+        }
+        return corpusJobService.getJob(user.getId(), jobId);
+    }
+}
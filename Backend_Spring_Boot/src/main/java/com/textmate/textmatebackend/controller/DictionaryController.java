@@ -0,0 +1,63 @@
+package com.textmate.textmatebackend.controller;
+
+import com.textmate.textmatebackend.model.ApiResponse;
+import com.textmate.textmatebackend.model.User;
+import com.textmate.textmatebackend.service.DictionaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/admin/dictionary")
+@CrossOrigin(origins = "*")
+public class DictionaryController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryController.class);
+
+    private final DictionaryService dictionaryService;
+    private final Set<String> adminUsers;
+
+    public DictionaryController(DictionaryService dictionaryService,
+                                @Value("${textmate.dictionary.admin-users:}") Set<String> adminUsers) {
+        this.dictionaryService = dictionaryService;
+        this.adminUsers = adminUsers;
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse> getDictionary(Authentication auth) {
+        if (!isAdmin(auth)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Not allowed to manage the dictionary."), HttpStatus.FORBIDDEN);
+        }
+        ApiResponse response = new ApiResponse(true, "Dictionary retrieved successfully.");
+        response.setDictionary(dictionaryService.getInfo());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    // Rereads the dictionary files after they were edited; the old dictionary stays in use until the new one is built
+    @PostMapping("/reload")
+    public ResponseEntity<ApiResponse> reloadDictionary(Authentication auth) {
+        if (!isAdmin(auth)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Not allowed to manage the dictionary."), HttpStatus.FORBIDDEN);
+        }
+        try {
+            ApiResponse response = new ApiResponse(true, "Dictionary reloaded successfully.");
+            response.setDictionary(dictionaryService.reload());
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IOException e) {
+            logger.warn("Dictionary reload failed, keeping the current dictionary", e);
+            return new ResponseEntity<>(new ApiResponse(false, "Could not read the dictionary: " + e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // There are no roles in this app, so access is limited to the configured usernames
+    private boolean isAdmin(Authentication auth) {
+        return auth != null && auth.getPrincipal() instanceof User user && adminUsers.contains(user.getUsername());
+    }
+}
@@ -1,38 +1,176 @@
 package com.textmate.textmatebackend.controller;
 
+import com.textmate.textmatebackend.model.AnalysisStats;
 import com.textmate.textmatebackend.model.ApiResponse;
+import com.textmate.textmatebackend.model.DiffResult;
 import com.textmate.textmatebackend.model.OperationLog;
-import com.textmate.textmatebackend.repository.OperationLogRepository;
+import com.textmate.textmatebackend.model.SimilarOperation;
+import com.textmate.textmatebackend.model.TextRequest;
+import com.textmate.textmatebackend.service.HistoryService;
+import com.textmate.textmatebackend.service.HistoryVersionTracker;
+import com.textmate.textmatebackend.util.TextDiff;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/history")
 @CrossOrigin(origins = "*")
 public class HistoryController {
 
-    private final OperationLogRepository logRepo;
+    private static final int MAX_PAGE_SIZE = 500;
 
-    public HistoryController(OperationLogRepository logRepo) {
-        this.logRepo = logRepo;
+    private final HistoryService historyService;
+    private final HistoryVersionTracker historyVersionTracker;
+    private final double defaultSimilarityThreshold;
+
+    public HistoryController(HistoryService historyService, HistoryVersionTracker historyVersionTracker,
+                             @Value("${textmate.similarity.default-threshold:0.5}") double defaultSimilarityThreshold) {
+        this.historyService = historyService;
+        this.historyVersionTracker = historyVersionTracker;
+        this.defaultSimilarityThreshold = defaultSimilarityThreshold;
     }
 
     @GetMapping
-    public ResponseEntity<ApiResponse> getUserHistory(Authentication auth) {
+    public ResponseEntity<ApiResponse> getUserHistory(Authentication auth,
+                                                      WebRequest webRequest,
+                                                      @RequestParam(required = false) Integer page,
+                                                      @RequestParam(required = false) Integer size) {
         if (auth == null || !auth.isAuthenticated() || !(auth.getPrincipal() instanceof com.textmate.textmatebackend.model.User)) {
             return ResponseEntity.ok(new ApiResponse(true, "No history found.", java.util.Collections.emptyList()));
         }
 
+        if ((page != null && page < 0) || (size != null && (size < 1 || size > MAX_PAGE_SIZE))) {
+            return new ResponseEntity<>(new ApiResponse(false, "Page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE + "."), HttpStatus.BAD_REQUEST);
+        }
+
         com.textmate.textmatebackend.model.User user = (com.textmate.textmatebackend.model.User) auth.getPrincipal();
-        List<OperationLog> logs = logRepo.findByUserId(user.getId());
 
-        if (logs.isEmpty()) {
-            return ResponseEntity.ok(new ApiResponse(true, "No history found.", logs));
-        } else {
-            return ResponseEntity.ok(new ApiResponse(true, "History retrieved successfully.", logs));
+        // Read the version before the history so a concurrent write can only make the tag stale, not wrong
+        String etag = historyVersionTracker.currentEtag(user.getId());
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 already prepared by checkNotModified, no sink or Jackson work needed
+        }
+
+        // Without paging parameters the full history is returned, as before
+        List<OperationLog> logs = size == null
+                ? historyService.getHistoryForUser(user.getId())
+                : historyService.getHistoryPageForUser(user.getId(), page == null ? 0 : page, size);
+
+        ApiResponse body = logs.isEmpty()
+                ? new ApiResponse(true, "No history found.", logs)
+                : new ApiResponse(true, "History retrieved successfully.", logs);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(body);
+    }
+
+    /**
+     * Lists the user's analyses above a word count, e.g. {@code ?minWords=10000}, newest first.
+     */
+    @GetMapping("/analyses")
+    public ResponseEntity<ApiResponse> getAnalyses(Authentication auth,
+                                                   @RequestParam(defaultValue = "0") int minWords,
+                                                   @RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "50") int size) {
+        if (auth == null || !(auth.getPrincipal() instanceof com.textmate.textmatebackend.model.User user)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please log in to view your analyses."), HttpStatus.UNAUTHORIZED);
+        }
+        if (minWords < 0 || page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return new ResponseEntity<>(new ApiResponse(false, "minWords and page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE + "."), HttpStatus.BAD_REQUEST);
+        }
+        List<OperationLog> logs = historyService.getAnalysesForUser(user.getId(), minWords, page, size);
+        return ResponseEntity.ok(new ApiResponse(true, logs.isEmpty() ? "No analyses found." : "Analyses retrieved successfully.", logs));
+    }
+
+    /**
+     * Returns aggregates over all of the user's analyses, computed by the history store.
+     */
+    @GetMapping("/analyses/stats")
+    public ResponseEntity<ApiResponse> getAnalysisStats(Authentication auth) {
+        if (auth == null || !(auth.getPrincipal() instanceof com.textmate.textmatebackend.model.User user)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please log in to view your analyses."), HttpStatus.UNAUTHORIZED);
+        }
+        AnalysisStats stats = historyService.getAnalysisStatsForUser(user.getId());
+        ApiResponse response = new ApiResponse(true, "Analysis statistics retrieved successfully.");
+        response.setAnalysisStats(stats);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Lists the user's past operations on texts similar to the given one, e.g. {@code ?threshold=0.8},
+     * most similar first, with the estimated similarity of each.
+     */
+    @PostMapping("/similar")
+    public ResponseEntity<ApiResponse> findSimilar(Authentication auth,
+                                                   @RequestBody TextRequest request,
+                                                   @RequestParam(required = false) Double threshold,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        if (auth == null || !(auth.getPrincipal() instanceof com.textmate.textmatebackend.model.User user)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please log in to search your history."), HttpStatus.UNAUTHORIZED);
+        }
+        if (request.getText() == null || request.getText().isBlank()) {
+            return new ResponseEntity<>(new ApiResponse(false, "Text cannot be empty."), HttpStatus.BAD_REQUEST);
+        }
+        double minSimilarity = threshold == null ? defaultSimilarityThreshold : threshold;
+        if (minSimilarity <= 0 || minSimilarity > 1 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return new ResponseEntity<>(new ApiResponse(false, "threshold must be in (0, 1] and limit between 1 and " + MAX_PAGE_SIZE + "."), HttpStatus.BAD_REQUEST);
+        }
+        List<SimilarOperation> similar = historyService.findSimilarForUser(user.getId(), request.getText(), minSimilarity, limit);
+        ApiResponse response = new ApiResponse(true, similar.isEmpty() ? "No similar operations found." : "Similar operations retrieved successfully.");
+        response.setSimilar(similar);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Diffs an entry's original text against its transformed text.
+     */
+    @GetMapping("/{id}/diff")
+    public ResponseEntity<ApiResponse> diffEntry(Authentication auth,
+                                                 @PathVariable Long id,
+                                                 @RequestParam(required = false) String granularity) {
+        if (auth == null || !(auth.getPrincipal() instanceof com.textmate.textmatebackend.model.User user)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please log in to compare history entries."), HttpStatus.UNAUTHORIZED);
+        }
+        try {
+            return diffResponse(historyService.diffEntry(user.getId(), id, TextDiff.Granularity.parse(granularity)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new ApiResponse(false, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Diffs the result texts of two entries, e.g. two drafts run through the same operation.
+     */
+    @GetMapping("/diff")
+    public ResponseEntity<ApiResponse> diffEntries(Authentication auth,
+                                                   @RequestParam Long from,
+                                                   @RequestParam Long to,
+                                                   @RequestParam(required = false) String granularity) {
+        if (auth == null || !(auth.getPrincipal() instanceof com.textmate.textmatebackend.model.User user)) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please log in to compare history entries."), HttpStatus.UNAUTHORIZED);
+        }
+        try {
+            return diffResponse(historyService.diffEntries(user.getId(), from, to, TextDiff.Granularity.parse(granularity)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new ApiResponse(false, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static ResponseEntity<ApiResponse> diffResponse(Optional<DiffResult> diff) {
+        if (diff.isEmpty()) {
+            return new ResponseEntity<>(new ApiResponse(false, "History entry not found."), HttpStatus.NOT_FOUND);
         }
+        ApiResponse response = new ApiResponse(true, "History entries compared successfully.");
+        response.setDiff(diff.get());
+        return ResponseEntity.ok(response);
     }
 }
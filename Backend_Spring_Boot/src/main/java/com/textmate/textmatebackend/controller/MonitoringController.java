@@ -0,0 +1,62 @@
+package com.textmate.textmatebackend.controller;
+
+import com.textmate.textmatebackend.model.User;
+import com.textmate.textmatebackend.monitoring.JfrRecordingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+public class MonitoringController {
+
+    private final JfrRecordingService jfrRecordingService;
+    private final Set<String> dumpUsers;
+
+    public MonitoringController(JfrRecordingService jfrRecordingService,
+                                @Value("${textmate.jfr.dump-users:}") Set<String> dumpUsers) {
+        this.jfrRecordingService = jfrRecordingService;
+        this.dumpUsers = dumpUsers;
+    }
+
+    // Dumps the continuous JFR recording; open it with JDK Mission Control or `jfr print`
+    @GetMapping("/jfr")
+    public ResponseEntity<StreamingResponseBody> dumpRecording(Authentication auth) throws IOException {
+        // There are no roles in this app, so access is limited to the configured usernames
+        if (!(auth != null && auth.getPrincipal() instanceof User user) || !dumpUsers.contains(user.getUsername())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Optional<Path> dump = jfrRecordingService.dump();
+        if (dump.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        Path file = dump.get();
+        String filename = "textmate-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr";
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,69 @@
+package com.textmate.textmatebackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.textmate.textmatebackend.model.ApiResponse;
+import com.textmate.textmatebackend.service.StreamingTransformService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/stream")
+@CrossOrigin(origins = "*")
+public class StreamController {
+
+    private final StreamingTransformService streamingTransformService;
+    private final ObjectMapper objectMapper;
+
+    public StreamController(StreamingTransformService streamingTransformService, ObjectMapper objectMapper) {
+        this.streamingTransformService = streamingTransformService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Transforms a raw UTF-8 request body of any size and streams the result back with chunked
+     * transfer encoding, e.g. {@code curl -X POST -T big.txt -H 'Content-Type: text/plain' /api/stream/uppercase}.
+     * Errors detected before the response starts are returned as JSON like everywhere else.
+     */
+    @PostMapping("/{operation}")
+    public ResponseEntity<StreamingResponseBody> transform(@PathVariable String operation,
+                                                           InputStream body,
+                                                           @RequestHeader(value = "Session-Id", required = false) String sessionId) throws IOException {
+        StreamingTransformService.Transform transform;
+        try {
+            transform = streamingTransformService.open(operation, body, sessionId);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (StreamingTransformService.StreamTooLargeException e) {
+            return error(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+        StreamingResponseBody result = out -> {
+            try (transform) {
+                transform.writeTo(out);
+            }
+        };
+        // No content length, so the response goes out chunked as it is produced
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .header("X-Input-Bytes", Long.toString(transform.getInputBytes()))
+                .header("X-Input-SHA256", transform.getInputSha256())
+                .body(result);
+    }
+
+    // The return type must name StreamingResponseBody for Spring to stream it, so errors are written the same way
+    private ResponseEntity<StreamingResponseBody> error(HttpStatus status, String message) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(new ApiResponse(false, message));
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(json.length)
+                .body(out -> out.write(json));
+    }
+}
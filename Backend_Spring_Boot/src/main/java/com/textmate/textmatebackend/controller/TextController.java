@@ -1,9 +1,13 @@
 package com.textmate.textmatebackend.controller;
 
 import com.textmate.textmatebackend.model.ApiResponse;
+import com.textmate.textmatebackend.model.DiffRequest;
+import com.textmate.textmatebackend.model.ReplaceRequest;
 import com.textmate.textmatebackend.model.TextAnalysisResult;
 import com.textmate.textmatebackend.model.TextRequest;
 import com.textmate.textmatebackend.service.TextService;
+import com.textmate.textmatebackend.util.MatchBudgetExceededException;
+import com.textmate.textmatebackend.util.TextDiff;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -55,6 +59,49 @@ public class TextController {
         return processTextRequest(request, sessionId, textService::reverseText, "Text reversed successfully.");
     }
 
+    @PostMapping("/mask")
+    public ResponseEntity<ApiResponse> maskText(@RequestBody TextRequest request, @RequestHeader(value="Session-Id", required = false) String sessionId) {
+        return processTextRequest(request, sessionId, textService::maskText, "Sensitive terms masked.");
+    }
+
+    @PostMapping("/highlight")
+    public ResponseEntity<ApiResponse> highlightText(@RequestBody TextRequest request, @RequestHeader(value="Session-Id", required = false) String sessionId) {
+        return processTextRequest(request, sessionId, textService::highlightText, "Sensitive terms highlighted.");
+    }
+
+    @PostMapping("/replace")
+    public ResponseEntity<ApiResponse> replaceText(@RequestBody ReplaceRequest request, @RequestHeader(value="Session-Id", required = false) String sessionId) {
+        if (request.getText() == null || request.getText().trim().isEmpty()) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please enter some text to perform operations."), HttpStatus.BAD_REQUEST);
+        }
+        if (request.getFind() == null || request.getFind().isEmpty()) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please enter the text to find."), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            String transformed = textService.replaceText(request, sessionId);
+            return new ResponseEntity<>(new ApiResponse(true, "Text replaced successfully.", transformed), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new ApiResponse(false, e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (MatchBudgetExceededException e) {
+            return new ResponseEntity<>(new ApiResponse(false, "The pattern is too expensive to evaluate on this text."), HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+    }
+
+    @PostMapping("/diff")
+    public ResponseEntity<ApiResponse> diffText(@RequestBody DiffRequest request, @RequestHeader(value="Session-Id", required = false) String sessionId) {
+        if (request.getOriginal() == null || request.getRevised() == null) {
+            return new ResponseEntity<>(new ApiResponse(false, "Please enter both texts to compare."), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            TextDiff.Granularity granularity = TextDiff.Granularity.parse(request.getGranularity());
+            ApiResponse response = new ApiResponse(true, "Texts compared successfully.");
+            response.setDiff(textService.diffTexts(request.getOriginal(), request.getRevised(), granularity, sessionId));
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new ApiResponse(false, e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @PostMapping("/analyze")
     public ResponseEntity<ApiResponse> analyzeText(@RequestBody TextRequest request, @RequestHeader(value="Session-Id", required = false) String sessionId) {
         if (request.getText() == null || request.getText().trim().isEmpty()) {
@@ -0,0 +1,31 @@
+package com.textmate.textmatebackend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aggregates over a user's analyze operations, computed by the history store.
+ */
+@Data
+@NoArgsConstructor
+public class AnalysisStats {
+    private long analyses;
+    private long totalWords;
+    private double averageWords;
+    private int maxWords;
+    private long totalChars;
+    private long totalSentences;
+    private long totalReadTime; // in minutes
+
+    // Matches the JPQL constructor expression; SUM, AVG and MAX are null when there are no rows
+    public AnalysisStats(Long analyses, Long totalWords, Double averageWords, Integer maxWords,
+                         Long totalChars, Long totalSentences, Long totalReadTime) {
+        this.analyses = analyses == null ? 0 : analyses;
+        this.totalWords = totalWords == null ? 0 : totalWords;
+        this.averageWords = averageWords == null ? 0 : averageWords;
+        this.maxWords = maxWords == null ? 0 : maxWords;
+        this.totalChars = totalChars == null ? 0 : totalChars;
+        this.totalSentences = totalSentences == null ? 0 : totalSentences;
+        this.totalReadTime = totalReadTime == null ? 0 : totalReadTime;
+    }
+}
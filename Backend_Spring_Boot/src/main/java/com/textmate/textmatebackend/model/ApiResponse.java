@@ -13,6 +13,11 @@ public class ApiResponse {
     private TextAnalysisResult analysis; // Changed from Object to specific type
     private String token;    // For login/signup response
     private List<OperationLog> data; // For lists of data like history
+    private CorpusJob job;   // For bulk corpus job submission and progress
+    private DiffResult diff; // For text and history diffs
+    private AnalysisStats analysisStats; // For aggregates over a user's analyses
+    private DictionaryInfo dictionary; // For the masking dictionary's statistics
+    private List<SimilarOperation> similar; // For near-duplicate lookups in a user's history
 
     public ApiResponse(boolean success, String message) {
         this.success = success;
@@ -0,0 +1,27 @@
+package com.textmate.textmatebackend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class CorpusJob {
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private String id;
+
+    @JsonIgnore
+    private Long ownerId; // Only the submitting user may see the job
+
+    private String operation; // e.g., "uppercase", "analyze"
+    private String format;    // "zip" or "ndjson"
+    // Updated by the job thread while clients poll, hence volatile
+    private volatile Status status;
+    private long totalItems;
+    private volatile long processedItems; // Includes failed items
+    private volatile long failedItems;
+    private String error; // Set when the whole job failed
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
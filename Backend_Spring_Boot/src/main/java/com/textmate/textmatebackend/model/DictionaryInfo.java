@@ -0,0 +1,19 @@
+package com.textmate.textmatebackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DictionaryInfo {
+    private int terms;          // distinct terms after case folding
+    private int states;         // automaton states, roughly the total length of the terms
+    private boolean wholeWords; // true if terms only match at word boundaries
+    private List<String> files;
+    private LocalDateTime loadedAt;
+}
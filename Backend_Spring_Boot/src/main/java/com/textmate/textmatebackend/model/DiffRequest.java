@@ -0,0 +1,10 @@
+package com.textmate.textmatebackend.model;
+
+import lombok.Data;
+
+@Data
+public class DiffRequest {
+    private String original;
+    private String revised;
+    private String granularity; // "line", "word" (default) or "char"
+}
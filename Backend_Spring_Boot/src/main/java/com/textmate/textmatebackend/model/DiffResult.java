@@ -0,0 +1,13 @@
+package com.textmate.textmatebackend.model;
+
+import lombok.Data;
+
+@Data
+public class DiffResult {
+    private String granularity;   // "line", "word" or "char"
+    private String delta;         // diff-match-patch delta: tab-separated =n, -n and +encoded-text
+    private long unchangedChars;
+    private long deletedChars;
+    private long insertedChars;
+    private boolean approximate;  // true if the time budget ran out and part of the script is not minimal
+}
@@ -1,6 +1,10 @@
 package com.textmate.textmatebackend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.AttributeOverride;
+import jakarta.persistence.AttributeOverrides;
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -34,8 +38,27 @@ public class OperationLog {
     @Column(columnDefinition = "TEXT")
     private String transformedText; // For transformations
 
-    @Column(columnDefinition = "TEXT")
-    private String analysisResultJson; // For analysis results, stored as JSON string
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "wordCount", column = @Column(name = "analysis_word_count")),
+            @AttributeOverride(name = "charCount", column = @Column(name = "analysis_char_count")),
+            @AttributeOverride(name = "sentenceCount", column = @Column(name = "analysis_sentence_count")),
+            @AttributeOverride(name = "readTime", column = @Column(name = "analysis_read_time"))
+    })
+    private TextAnalysisResult analysis; // For analysis results; null (all columns NULL) for transformations
+
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "inputBytes", column = @Column(name = "stream_input_bytes")),
+            @AttributeOverride(name = "inputSha256", column = @Column(name = "stream_input_sha256", length = 64)),
+            @AttributeOverride(name = "outputBytes", column = @Column(name = "stream_output_bytes")),
+            @AttributeOverride(name = "outputSha256", column = @Column(name = "stream_output_sha256", length = 64))
+    })
+    private StreamedContent streamed; // For streamed transforms, which store no texts; null otherwise
+
+    @JsonIgnore
+    @Column(name = "similarity_signature", length = 4096)
+    private byte[] similaritySignature; // Encoded MinHash of originalText for users' entries; null otherwise
 
     private LocalDateTime timestamp;
 }
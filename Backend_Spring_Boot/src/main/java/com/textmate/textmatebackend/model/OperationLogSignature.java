@@ -0,0 +1,11 @@
+package com.textmate.textmatebackend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The stored similarity signature of one operation log entry, loaded without the texts.
+ * Entries written before signatures were stored have none; they carry their original text
+ * instead, so that they can still be signed.
+ */
+public record OperationLogSignature(Long id, String operationType, LocalDateTime timestamp, byte[] signature, String originalText) {
+}
@@ -0,0 +1,7 @@
+package com.textmate.textmatebackend.model;
+
+/**
+ * The text bodies of one operation log entry, loaded without the rest of the row.
+ */
+public record OperationLogTexts(String originalText, String transformedText) {
+}
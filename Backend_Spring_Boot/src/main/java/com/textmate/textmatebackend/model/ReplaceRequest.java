@@ -0,0 +1,12 @@
+package com.textmate.textmatebackend.model;
+
+import lombok.Data;
+
+@Data
+public class ReplaceRequest {
+    private String text;
+    private String find;
+    private String replacement; // Supports $1 / ${name} group references in regex mode
+    private boolean regex;      // false = literal search
+    private boolean ignoreCase;
+}
@@ -0,0 +1,17 @@
+package com.textmate.textmatebackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarOperation {
+    private Long id;               // history entry, e.g. for GET /api/history/diff
+    private String operationType;
+    private LocalDateTime timestamp;
+    private double similarity;     // estimated Jaccard similarity of the original texts, 0 to 1
+}
@@ -0,0 +1,21 @@
+package com.textmate.textmatebackend.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sizes and SHA-256 digests of the input and output of a streamed transform. Embedded in
+ * {@link OperationLog} instead of the texts, which can be hundreds of megabytes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class StreamedContent {
+    private long inputBytes;     // UTF-8 bytes received
+    private String inputSha256;  // lowercase hex
+    private long outputBytes;    // UTF-8 bytes sent
+    private String outputSha256; // lowercase hex
+}
@@ -1,12 +1,18 @@
 package com.textmate.textmatebackend.model;
 
+import jakarta.persistence.Embeddable;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Result of a text analysis. Also embedded in {@link OperationLog} as typed {@code analysis_*} columns,
+ * so new metrics only need a field here (plus a column override there).
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Embeddable
 public class TextAnalysisResult {
     private int wordCount;
     private int charCount;
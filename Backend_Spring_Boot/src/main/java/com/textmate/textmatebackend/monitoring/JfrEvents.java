@@ -0,0 +1,21 @@
+package com.textmate.textmatebackend.monitoring;
+
+/**
+ * Global switch for the TextMate JFR events, set once at startup by {@link JfrRecordingService}.
+ * When off, instrumented code paths only pay for one volatile read and never allocate an event.
+ */
+public final class JfrEvents {
+
+    private static volatile boolean enabled;
+
+    private JfrEvents() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+    }
+}
@@ -0,0 +1,89 @@
+package com.textmate.textmatebackend.monitoring;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Owns the always-on JDK Flight Recorder recording for the TextMate events.
+ *
+ * When {@code textmate.jfr.enabled=true} the custom events are switched on and a continuous,
+ * size- and age-bounded recording is started with the bundled {@code jfr/textmate.jfc} settings.
+ * {@link #dump()} snapshots that recording to a file on demand.
+ */
+@Service
+public class JfrRecordingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecordingService.class);
+
+    private static final String SETTINGS_RESOURCE = "/jfr/textmate.jfc";
+
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+
+    private Recording recording;
+
+    public JfrRecordingService(@Value("${textmate.jfr.enabled:false}") boolean enabled,
+                               @Value("${textmate.jfr.max-age-minutes:30}") long maxAgeMinutes,
+                               @Value("${textmate.jfr.max-size-bytes:104857600}") long maxSizeBytes) {
+        this.enabled = enabled;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        JfrEvents.setEnabled(enabled);
+        if (!enabled) {
+            return;
+        }
+        Configuration settings;
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream(SETTINGS_RESOURCE), StandardCharsets.UTF_8)) {
+            settings = Configuration.create(reader);
+        }
+        recording = new Recording(settings);
+        recording.setName("textmate-continuous");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        recording.start();
+        logger.info("JFR recording '{}' started (max age {}, max size {} bytes)", recording.getName(), maxAge, maxSizeBytes);
+    }
+
+    @PreDestroy
+    public void stop() {
+        JfrEvents.setEnabled(false);
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    /**
+     * Writes the data currently held by the continuous recording to a temporary .jfr file.
+     * @return The file, which the caller must delete, or empty if recording is switched off.
+     */
+    public Optional<Path> dump() throws IOException {
+        if (recording == null) {
+            return Optional.empty();
+        }
+        Path file = Files.createTempFile("textmate-", ".jfr");
+        recording.dump(file);
+        return Optional.of(file);
+    }
+}
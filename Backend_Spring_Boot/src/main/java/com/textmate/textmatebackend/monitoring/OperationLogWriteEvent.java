@@ -0,0 +1,44 @@
+package com.textmate.textmatebackend.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.textmate.OperationLogWrite")
+@Label("Operation Log Write")
+@Category({"TextMate", "Persistence"})
+@Description("Persisting one operation log entry through the configured sink")
+public class OperationLogWriteEvent extends Event {
+
+    @Label("Operation Type")
+    String operationType;
+
+    @Label("Sink")
+    String sink;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /**
+     * @return A started event, or null when TextMate JFR events are switched off.
+     */
+    public static OperationLogWriteEvent start(String operationType, Object sink) {
+        if (!JfrEvents.isEnabled()) {
+            return null;
+        }
+        OperationLogWriteEvent event = new OperationLogWriteEvent();
+        event.operationType = operationType;
+        event.sink = sink.getClass().getSimpleName();
+        event.begin();
+        return event;
+    }
+
+    public static void finish(OperationLogWriteEvent event, boolean succeeded) {
+        if (event != null) {
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.textmate.textmatebackend.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.textmate.TextOperation")
+@Label("Text Operation")
+@Category({"TextMate", "Text"})
+@Description("A TextUtils transformation or analysis")
+@StackTrace(false)
+public class TextOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Input Length")
+    @Description("Length of the input in UTF-16 chars")
+    int inputLength;
+
+    /**
+     * @return A started event, or null when TextMate JFR events are switched off.
+     */
+    public static TextOperationEvent start(String operation, String input) {
+        if (!JfrEvents.isEnabled()) {
+            return null;
+        }
+        TextOperationEvent event = new TextOperationEvent();
+        event.operation = operation;
+        event.inputLength = input == null ? 0 : input.length();
+        event.begin();
+        return event;
+    }
+
+    public static void finish(TextOperationEvent event) {
+        if (event != null) {
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.textmate.textmatebackend.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.textmate.JwtTokenCheck")
+@Label("JWT Token Check")
+@Category({"TextMate", "Security"})
+@Description("Signature and expiry validation of a bearer token in JwtAuthFilter")
+@StackTrace(false)
+public class TokenCheckEvent extends Event {
+
+    @Label("Valid")
+    boolean valid;
+
+    /**
+     * @return A started event, or null when TextMate JFR events are switched off.
+     */
+    public static TokenCheckEvent start() {
+        if (!JfrEvents.isEnabled()) {
+            return null;
+        }
+        TokenCheckEvent event = new TokenCheckEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void finish(TokenCheckEvent event, boolean valid) {
+        if (event != null) {
+            event.valid = valid;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.textmate.textmatebackend.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.textmate.UserLookup")
+@Label("User Lookup")
+@Category({"TextMate", "Security"})
+@Description("Loading the authenticated user for a request in JwtAuthFilter")
+@StackTrace(false)
+public class UserLookupEvent extends Event {
+
+    @Label("Found")
+    boolean found;
+
+    /**
+     * @return A started event, or null when TextMate JFR events are switched off.
+     */
+    public static UserLookupEvent start() {
+        if (!JfrEvents.isEnabled()) {
+            return null;
+        }
+        UserLookupEvent event = new UserLookupEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void finish(UserLookupEvent event, boolean found) {
+        if (event != null) {
+            event.found = found;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.textmate.textmatebackend.protocol;
+
+/**
+ * Frame layout and codes of the binary text protocol. All integers are big-endian.
+ *
+ * <pre>
+ *   request:  int32 length | uint8 opcode | uint8 flags | int32 requestId | UTF-8 text
+ *   response: int32 length | uint8 status | uint8 flags | int32 requestId | payload
+ * </pre>
+ * {@code length} counts the bytes after itself. A client may send any number of requests without
+ * waiting for responses; they are answered in order on the same connection, and each response
+ * carries the request's ID. The response payload is the UTF-8 result text, four int32s (words,
+ * chars, sentences, read time) for {@link #OP_ANALYZE}, or a UTF-8 error message if the status is
+ * not {@link #STATUS_OK}.
+ */
+public final class BinaryProtocol {
+
+    public static final int LENGTH_BYTES = 4;
+    /** Opcode or status, flags and request ID. */
+    public static final int HEADER_BYTES = 6;
+
+    public static final byte OP_PING = 0;
+    public static final byte OP_UPPERCASE = 1;
+    public static final byte OP_LOWERCASE = 2;
+    public static final byte OP_TITLECASE = 3;
+    public static final byte OP_REVERSE = 4;
+    public static final byte OP_ANALYZE = 5;
+
+    /** Request flag: do not record the operation in the history. */
+    public static final byte FLAG_NO_LOG = 0x01;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_BAD_REQUEST = 1;
+    public static final byte STATUS_UNKNOWN_OPERATION = 2;
+    public static final byte STATUS_FRAME_TOO_LARGE = 3;
+    public static final byte STATUS_SERVER_ERROR = 4;
+
+    private BinaryProtocol() {
+    }
+}
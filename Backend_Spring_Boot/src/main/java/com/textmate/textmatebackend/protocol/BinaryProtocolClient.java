@@ -0,0 +1,192 @@
+package com.textmate.textmatebackend.protocol;
+
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client for the {@link BinaryProtocol} over one connection. {@link #send} pipelines: it returns as
+ * soon as the request is written, and a reader thread completes the returned future when the response
+ * arrives. The blocking helpers ({@link #uppercase}, {@link #analyze}, ...) send one request and wait.
+ * Instances are thread-safe.
+ *
+ * <pre>
+ *   try (BinaryProtocolClient client = BinaryProtocolClient.connect("localhost", 9091)) {
+ *       String upper = client.uppercase("hello");
+ *   }
+ * </pre>
+ */
+public class BinaryProtocolClient implements AutoCloseable {
+
+    /** A response frame; {@code payload} is the result, or an error message if the status is not OK. */
+    public record Response(byte status, int requestId, byte[] payload) {
+
+        public boolean isOk() {
+            return status == BinaryProtocol.STATUS_OK;
+        }
+
+        public String text() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        public TextAnalysisResult analysis() {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            return new TextAnalysisResult(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        }
+    }
+
+    /** Thrown by the blocking helpers when the server answers with an error status. */
+    public static class BinaryProtocolException extends IOException {
+
+        private final byte status;
+
+        public BinaryProtocolException(byte status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public byte getStatus() {
+            return status;
+        }
+    }
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final Map<Integer, CompletableFuture<Response>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final Thread reader;
+    private volatile IOException failure;
+
+    private BinaryProtocolClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        this.reader = new Thread(this::readResponses, "binary-client-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    public static BinaryProtocolClient connect(String host, int port) throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), 5000);
+        return new BinaryProtocolClient(socket);
+    }
+
+    /**
+     * Writes a request without waiting for its response.
+     * @param opcode One of the {@code BinaryProtocol.OP_*} codes.
+     * @param flags {@code BinaryProtocol.FLAG_*} bits, or 0.
+     * @param text The input text.
+     * @return Completes with the response, or exceptionally if the connection fails first.
+     */
+    public CompletableFuture<Response> send(byte opcode, byte flags, String text) throws IOException {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        int requestId = nextRequestId.incrementAndGet();
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        try {
+            synchronized (out) {
+                if (failure != null) {
+                    throw failure;
+                }
+                out.writeInt(BinaryProtocol.HEADER_BYTES + payload.length);
+                out.writeByte(opcode);
+                out.writeByte(flags);
+                out.writeInt(requestId);
+                out.write(payload);
+                out.flush();
+            }
+        } catch (IOException e) {
+            pending.remove(requestId);
+            throw e;
+        }
+        return response;
+    }
+
+    public String uppercase(String text) throws IOException {
+        return call(BinaryProtocol.OP_UPPERCASE, text).text();
+    }
+
+    public String lowercase(String text) throws IOException {
+        return call(BinaryProtocol.OP_LOWERCASE, text).text();
+    }
+
+    public String titlecase(String text) throws IOException {
+        return call(BinaryProtocol.OP_TITLECASE, text).text();
+    }
+
+    public String reverse(String text) throws IOException {
+        return call(BinaryProtocol.OP_REVERSE, text).text();
+    }
+
+    public TextAnalysisResult analyze(String text) throws IOException {
+        return call(BinaryProtocol.OP_ANALYZE, text).analysis();
+    }
+
+    private Response call(byte opcode, String text) throws IOException {
+        Response response;
+        try {
+            response = send(opcode, (byte) 0, text).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        if (!response.isOk()) {
+            throw new BinaryProtocolException(response.status(), response.text());
+        }
+        return response;
+    }
+
+    private void readResponses() {
+        try {
+            while (true) {
+                int length = in.readInt();
+                byte status = in.readByte();
+                in.readByte(); // flags, unused so far
+                int requestId = in.readInt();
+                byte[] payload = new byte[length - BinaryProtocol.HEADER_BYTES];
+                in.readFully(payload);
+                CompletableFuture<Response> response = pending.remove(requestId);
+                if (response != null) {
+                    response.complete(new Response(status, requestId, payload));
+                } else if (requestId == 0) {
+                    // The server rejected the stream itself and is closing the connection
+                    throw new BinaryProtocolException(status, new String(payload, StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            failure = e instanceof EOFException ? new EOFException("Connection closed by the server") : e;
+            pending.values().forEach(response -> response.completeExceptionally(failure));
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        try {
+            reader.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
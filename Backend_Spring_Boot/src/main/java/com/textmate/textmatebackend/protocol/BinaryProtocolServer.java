@@ -0,0 +1,393 @@
+package com.textmate.textmatebackend.protocol;
+
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+import com.textmate.textmatebackend.service.TextService;
+import com.textmate.textmatebackend.util.TextUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking listener for the {@link BinaryProtocol} on its own port, for trusted service-to-service
+ * callers. Requests bypass HTTP, JSON and the security filter chain: each I/O thread owns a selector and
+ * its connections, decodes frames, runs the operation through {@link TextUtils} and queues the response,
+ * so pipelined requests on a connection are answered in order. Operation logging is handed to
+ * {@link TextService} on a separate bounded executor; when that falls behind, the I/O thread logs itself,
+ * which slows down its clients instead of dropping history entries.
+ *
+ * There is no authentication, so the listener binds to the loopback address unless configured otherwise.
+ * Entries are recorded anonymously, with a session ID derived from the caller's address.
+ */
+@Component
+@ConditionalOnProperty(name = "textmate.binary.enabled", havingValue = "true")
+public class BinaryProtocolServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryProtocolServer.class);
+
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final TextService textService;
+    private final String bindAddress;
+    private final int port;
+    private final int ioThreads;
+    private final int maxFrameBytes;
+    private final int maxPendingWriteBytes;
+    private final ThreadPoolExecutor logExecutor;
+
+    private ServerSocketChannel serverChannel;
+    private IoLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    public BinaryProtocolServer(TextService textService,
+                                @Value("${textmate.binary.bind-address:127.0.0.1}") String bindAddress,
+                                @Value("${textmate.binary.port:9091}") int port,
+                                @Value("${textmate.binary.io-threads:0}") int ioThreads,
+                                @Value("${textmate.binary.max-frame-bytes:4194304}") int maxFrameBytes,
+                                @Value("${textmate.binary.max-pending-write-bytes:8388608}") int maxPendingWriteBytes,
+                                @Value("${textmate.binary.log-threads:2}") int logThreads,
+                                @Value("${textmate.binary.log-queue-size:10000}") int logQueueSize) {
+        this.textService = textService;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.ioThreads = ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors();
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxPendingWriteBytes = maxPendingWriteBytes;
+        AtomicInteger counter = new AtomicInteger();
+        this.logExecutor = new ThreadPoolExecutor(logThreads, logThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(logQueueSize), r -> {
+                    Thread thread = new Thread(r, "binary-log-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(bindAddress, port), 1024);
+        serverChannel.configureBlocking(false);
+        loops = new IoLoop[ioThreads];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop("binary-io-" + (i + 1));
+        }
+        // The first loop also accepts and hands new connections out round-robin
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (IoLoop loop : loops) {
+            loop.start();
+        }
+        logger.info("Binary protocol listening on {} with {} I/O threads", serverChannel.getLocalAddress(), loops.length);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (IoLoop loop : loops) {
+            loop.shutdown();
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            logger.warn("Could not close the binary protocol listener", e);
+        }
+        for (IoLoop loop : loops) {
+            loop.join(5000);
+        }
+        // Let queued history entries reach the sink before the context closes it
+        logExecutor.shutdown();
+        if (!logExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Dropped {} queued binary protocol history entries on shutdown", logExecutor.shutdownNow().size());
+        }
+    }
+
+    /**
+     * @return The bound port, useful when configured as 0.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private final class IoLoop extends Thread {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> newConnections = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+
+        IoLoop(String name) throws IOException {
+            super(name);
+            setDaemon(true);
+            this.selector = Selector.open();
+        }
+
+        void hand(SocketChannel channel) {
+            newConnections.add(channel);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    SocketChannel accepted;
+                    while ((accepted = newConnections.poll()) != null) {
+                        register(accepted);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (IOException e) {
+                            logger.debug("Closing binary protocol connection {}: {}", connection.sessionId, e.getMessage());
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    logger.error("Binary protocol I/O thread {} failed", getName(), e);
+                }
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection connection) {
+                        connection.close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // Shutting down anyway
+                }
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                IoLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                if (loop == this) {
+                    register(channel);
+                } else {
+                    loop.hand(channel);
+                }
+            }
+        }
+
+        private void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel, "binary:" + channel.getRemoteAddress());
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                logger.debug("Could not register binary protocol connection: {}", e.getMessage());
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+        }
+    }
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final String sessionId;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        // Kept in fill mode between flushes
+        private ByteBuffer out = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        private boolean closeAfterFlush;
+
+        Connection(SocketChannel channel, String sessionId) {
+            this.channel = channel;
+            this.sessionId = sessionId;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                // The client is done sending; deliver what is still pending, then close
+                closeAfterFlush = true;
+                flush();
+                return;
+            }
+            in.flip();
+            int needed = 0;
+            while (!closeAfterFlush && in.remaining() >= BinaryProtocol.LENGTH_BYTES) {
+                int start = in.position();
+                int length = in.getInt(start);
+                if (length < BinaryProtocol.HEADER_BYTES || length > maxFrameBytes) {
+                    // The stream cannot be resynchronized, so answer and hang up
+                    respond(BinaryProtocol.STATUS_FRAME_TOO_LARGE, 0,
+                            ("Frame length must be between " + BinaryProtocol.HEADER_BYTES + " and " + maxFrameBytes + " bytes.").getBytes(StandardCharsets.UTF_8));
+                    closeAfterFlush = true;
+                    break;
+                }
+                if (in.remaining() < BinaryProtocol.LENGTH_BYTES + length) {
+                    needed = BinaryProtocol.LENGTH_BYTES + length;
+                    break;
+                }
+                byte opcode = in.get(start + 4);
+                byte flags = in.get(start + 5);
+                int requestId = in.getInt(start + 6);
+                int textOffset = start + BinaryProtocol.LENGTH_BYTES + BinaryProtocol.HEADER_BYTES;
+                String text = new String(in.array(), textOffset, length - BinaryProtocol.HEADER_BYTES, StandardCharsets.UTF_8);
+                in.position(start + BinaryProtocol.LENGTH_BYTES + length);
+                handle(opcode, flags, requestId, text);
+            }
+            in.compact();
+            if (needed > in.capacity()) {
+                in = ByteBuffer.allocate(needed).put(in.flip());
+            } else if (in.position() == 0 && in.capacity() > INITIAL_BUFFER_BYTES) {
+                // Give the memory of a large frame back once it has been processed
+                in = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+            }
+            flush();
+        }
+
+        private void handle(byte opcode, byte flags, int requestId, String text) {
+            if (opcode == BinaryProtocol.OP_PING) {
+                respond(BinaryProtocol.STATUS_OK, requestId, new byte[0]);
+                return;
+            }
+            if (opcode < BinaryProtocol.OP_UPPERCASE || opcode > BinaryProtocol.OP_ANALYZE) {
+                respond(BinaryProtocol.STATUS_UNKNOWN_OPERATION, requestId, ("Unknown operation " + opcode + ".").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (text.trim().isEmpty()) {
+                respond(BinaryProtocol.STATUS_BAD_REQUEST, requestId, "Please enter some text to perform operations.".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            try {
+                String operation;
+                String transformed = null;
+                TextAnalysisResult analysis = null;
+                byte[] payload;
+                switch (opcode) {
+                    case BinaryProtocol.OP_UPPERCASE -> {
+                        operation = "uppercase";
+                        transformed = TextUtils.toUpperCase(text);
+                    }
+                    case BinaryProtocol.OP_LOWERCASE -> {
+                        operation = "lowercase";
+                        transformed = TextUtils.toLowerCase(text);
+                    }
+                    case BinaryProtocol.OP_TITLECASE -> {
+                        operation = "titlecase";
+                        transformed = TextUtils.toTitleCase(text);
+                    }
+                    case BinaryProtocol.OP_REVERSE -> {
+                        operation = "reverse";
+                        transformed = TextUtils.reverseText(text);
+                    }
+                    default -> {
+                        operation = "analyze";
+                        analysis = TextUtils.analyzeText(text);
+                    }
+                }
+                if (analysis != null) {
+                    payload = ByteBuffer.allocate(16).putInt(analysis.getWordCount()).putInt(analysis.getCharCount())
+                            .putInt(analysis.getSentenceCount()).putInt(analysis.getReadTime()).array();
+                } else {
+                    payload = transformed.getBytes(StandardCharsets.UTF_8);
+                }
+                respond(BinaryProtocol.STATUS_OK, requestId, payload);
+                if ((flags & BinaryProtocol.FLAG_NO_LOG) == 0) {
+                    String result = transformed;
+                    TextAnalysisResult analysisResult = analysis;
+                    logExecutor.execute(() -> recordOperation(operation, text, result, analysisResult));
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Binary protocol operation {} failed", opcode, e);
+                respond(BinaryProtocol.STATUS_SERVER_ERROR, requestId, "Internal error.".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void recordOperation(String operation, String text, String transformed, TextAnalysisResult analysis) {
+            try {
+                textService.recordOperation(operation, text, transformed, analysis, sessionId);
+            } catch (RuntimeException e) {
+                logger.warn("Could not record binary protocol operation {}", operation, e);
+            }
+        }
+
+        private void respond(byte status, int requestId, byte[] payload) {
+            int frameBytes = BinaryProtocol.LENGTH_BYTES + BinaryProtocol.HEADER_BYTES + payload.length;
+            if (out.remaining() < frameBytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + frameBytes));
+                out = grown.put(out.flip());
+            }
+            out.putInt(BinaryProtocol.HEADER_BYTES + payload.length).put(status).put((byte) 0).putInt(requestId).put(payload);
+        }
+
+        void flush() throws IOException {
+            if (!key.isValid()) {
+                return;
+            }
+            out.flip();
+            channel.write(out);
+            out.compact();
+            int pending = out.position();
+            if (pending == 0 && closeAfterFlush) {
+                close();
+                return;
+            }
+            if (pending == 0 && out.capacity() > INITIAL_BUFFER_BYTES) {
+                out = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+            }
+            // Stop reading from clients that do not read their responses
+            int interest = pending > maxPendingWriteBytes || closeAfterFlush ? 0 : SelectionKey.OP_READ;
+            key.interestOps(pending > 0 ? interest | SelectionKey.OP_WRITE : interest);
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to do with this connection
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.textmate.textmatebackend.repository;
+
+import com.textmate.textmatebackend.model.AnalysisStats;
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.OperationLogSignature;
+import com.textmate.textmatebackend.model.OperationLogTexts;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Default sink: stores operation logs in the {@code operation_logs} table through JPA.
+ */
+@Component
+@ConditionalOnProperty(name = "textmate.history.sink", havingValue = "jpa", matchIfMissing = true)
+public class JpaOperationLogSink implements OperationLogSink {
+
+    private final OperationLogRepository operationLogRepository;
+
+    public JpaOperationLogSink(OperationLogRepository operationLogRepository) {
+        this.operationLogRepository = operationLogRepository;
+    }
+
+    @Override
+    public OperationLog append(OperationLog log) {
+        return operationLogRepository.save(log);
+    }
+
+    @Override
+    public List<OperationLog> findByUserId(Long userId) {
+        return operationLogRepository.findByUserId(userId);
+    }
+
+    @Override
+    public List<OperationLog> findPageByUserId(Long userId, int page, int size) {
+        // IDs are assigned in insertion order, so ordering by the primary key avoids a timestamp sort
+        return operationLogRepository.findByUserIdOrderByIdDesc(userId, PageRequest.of(page, size));
+    }
+
+    @Override
+    public Optional<OperationLogTexts> findTextsForUser(Long userId, Long id) {
+        // DTO projection: selects the two text columns only
+        return operationLogRepository.findTextsByIdAndUserId(id, userId);
+    }
+
+    @Override
+    public List<OperationLogSignature> findSignaturesByUserId(Long userId, int limit) {
+        // DTO projection: the original text is only selected for entries without a signature
+        return operationLogRepository.findSignaturesByUserId(userId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public String historyVersion(Long userId) {
+        Object[] row = operationLogRepository.countAndMaxIdForUser(userId).get(0);
+        return row[0] + "-" + (row[1] == null ? 0 : row[1]);
+    }
+
+    @Override
+    public List<OperationLog> findAnalysesByUserId(Long userId, int minWords, int page, int size) {
+        return operationLogRepository.findByUserIdAndAnalysisWordCountGreaterThanOrderByIdDesc(userId, minWords, PageRequest.of(page, size));
+    }
+
+    @Override
+    public AnalysisStats analysisStatsForUser(Long userId) {
+        return operationLogRepository.analysisStatsForUser(userId);
+    }
+}
@@ -1,10 +1,34 @@
 package com.textmate.textmatebackend.repository;
 
+import com.textmate.textmatebackend.model.AnalysisStats;
 import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.OperationLogSignature;
+import com.textmate.textmatebackend.model.OperationLogTexts;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
+import java.util.Optional;
 
 public interface OperationLogRepository extends JpaRepository<OperationLog, Long> {
     List<OperationLog> findByUserId(Long userId);
     List<OperationLog> findByUserIdOrderByTimestampDesc(Long userId);
+    List<OperationLog> findByUserIdOrderByIdDesc(Long userId, Pageable pageable);
+    Optional<OperationLogTexts> findTextsByIdAndUserId(Long id, Long userId);
+    List<OperationLog> findByUserIdAndAnalysisWordCountGreaterThanOrderByIdDesc(Long userId, int minWords, Pageable pageable);
+
+    @Query("SELECT new com.textmate.textmatebackend.model.OperationLogSignature(o.id, o.operationType, o.timestamp, "
+            + "o.similaritySignature, CASE WHEN o.similaritySignature IS NULL THEN o.originalText END) "
+            + "FROM OperationLog o WHERE o.user.id = :userId ORDER BY o.id DESC")
+    List<OperationLogSignature> findSignaturesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT COUNT(o), MAX(o.id) FROM OperationLog o WHERE o.user.id = :userId")
+    List<Object[]> countAndMaxIdForUser(@Param("userId") Long userId);
+
+    @Query("SELECT new com.textmate.textmatebackend.model.AnalysisStats(COUNT(o), SUM(o.analysis.wordCount), "
+            + "AVG(o.analysis.wordCount), MAX(o.analysis.wordCount), SUM(o.analysis.charCount), "
+            + "SUM(o.analysis.sentenceCount), SUM(o.analysis.readTime)) "
+            + "FROM OperationLog o WHERE o.user.id = :userId AND o.analysis.wordCount IS NOT NULL")
+    AnalysisStats analysisStatsForUser(@Param("userId") Long userId);
 }
@@ -0,0 +1,108 @@
+package com.textmate.textmatebackend.repository;
+
+import com.textmate.textmatebackend.model.AnalysisStats;
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.OperationLogSignature;
+import com.textmate.textmatebackend.model.OperationLogTexts;
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage backend for the operation audit log.
+ * The implementation is selected with the {@code textmate.history.sink} property;
+ * {@link JpaOperationLogSink} is used when nothing is configured.
+ */
+public interface OperationLogSink {
+
+    /**
+     * Persists a new operation log entry.
+     * @param log The entry to store; its ID is assigned by the sink.
+     * @return The stored entry, with its ID set.
+     */
+    OperationLog append(OperationLog log);
+
+    /**
+     * Retrieves all entries written by a user, oldest first.
+     * @param userId The ID of the user.
+     * @return The user's entries, empty if there are none.
+     */
+    List<OperationLog> findByUserId(Long userId);
+
+    /**
+     * Retrieves one page of a user's entries, newest first.
+     * @param userId The ID of the user.
+     * @param page The zero-based page number.
+     * @param size The page size.
+     * @return The entries of the requested page, empty past the end of the history.
+     */
+    List<OperationLog> findPageByUserId(Long userId, int page, int size);
+
+    /**
+     * Loads only the original and transformed text of one entry.
+     * @param userId The ID of the user who must own the entry.
+     * @param id The ID of the entry.
+     * @return The texts, or empty if the entry does not exist or belongs to someone else.
+     */
+    Optional<OperationLogTexts> findTextsForUser(Long userId, Long id);
+
+    /**
+     * Retrieves the stored similarity signatures of a user's newest entries, newest first, without their texts.
+     * Entries that have no signature come with their original text, so the caller can sign them.
+     * @param userId The ID of the user.
+     * @param limit The maximum number of entries.
+     * @return The signatures, at most limit of them.
+     */
+    List<OperationLogSignature> findSignaturesByUserId(Long userId, int limit);
+
+    /**
+     * Returns a value that changes with every entry appended to a user's history, read from the store
+     * so that all instances sharing it agree. It is asked on every history request in multi-instance mode,
+     * so implementations must answer it without loading the history itself.
+     * @param userId The ID of the user.
+     * @return The number of entries and the highest entry ID, as {@code count-maxId}.
+     */
+    String historyVersion(Long userId);
+
+    /**
+     * Retrieves one page of a user's analyze operations with more than the given number of words, newest first.
+     * The default scans the whole history; sinks backed by a database filter on the typed analysis columns.
+     * @param userId The ID of the user.
+     * @param minWords Only analyses with a word count greater than this are returned.
+     * @param page The zero-based page number.
+     * @param size The page size.
+     * @return The entries of the requested page.
+     */
+    default List<OperationLog> findAnalysesByUserId(Long userId, int minWords, int page, int size) {
+        return findByUserId(userId).stream()
+                .filter(log -> log.getAnalysis() != null && log.getAnalysis().getWordCount() > minWords)
+                .sorted(Comparator.comparing(OperationLog::getId).reversed())
+                .skip((long) page * size)
+                .limit(size)
+                .toList();
+    }
+
+    /**
+     * Aggregates a user's analyze operations. The default computes them in memory from the whole history.
+     * @param userId The ID of the user.
+     * @return Count, sums, average and maximum of the analysis metrics; all zero without analyses.
+     */
+    default AnalysisStats analysisStatsForUser(Long userId) {
+        long count = 0, words = 0, chars = 0, sentences = 0, readTime = 0;
+        int maxWords = 0;
+        for (OperationLog log : findByUserId(userId)) {
+            TextAnalysisResult analysis = log.getAnalysis();
+            if (analysis != null) {
+                count++;
+                words += analysis.getWordCount();
+                chars += analysis.getCharCount();
+                sentences += analysis.getSentenceCount();
+                readTime += analysis.getReadTime();
+                maxWords = Math.max(maxWords, analysis.getWordCount());
+            }
+        }
+        return new AnalysisStats(count, words, count == 0 ? null : (double) words / count, maxWords, chars, sentences, readTime);
+    }
+}
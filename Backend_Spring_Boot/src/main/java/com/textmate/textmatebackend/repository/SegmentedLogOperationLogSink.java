@@ -0,0 +1,645 @@
+package com.textmate.textmatebackend.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.OperationLogSignature;
+import com.textmate.textmatebackend.model.OperationLogTexts;
+import com.textmate.textmatebackend.model.StreamedContent;
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+import com.textmate.textmatebackend.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only operation log stored in memory-mapped segment files on local disk.
+ *
+ * Record layout (big-endian):
+ * <pre>
+ *   int    bodyLength   length of the body; 0 marks the end of the written data
+ *   body:
+ *     byte    format version
+ *     long    id
+ *     long    timestamp (epoch millis, UTC)
+ *     varlong userId + 1 (0 = anonymous)
+ *     string  username, sessionId, operationType, originalText, transformedText
+ *     varlong analysis wordCount + 1 (0 = no analysis), then charCount, sentenceCount, readTime
+ *     varlong streamed inputBytes + 1 (0 = not streamed), then string inputSha256, varlong outputBytes, string outputSha256
+ *     bytes   similarity signature
+ *   int    CRC32 of the body
+ * </pre>
+ * Strings are written as varint (byteLength + 1) followed by UTF-8 bytes, with 0 meaning null;
+ * byte arrays the same way without the UTF-8 encoding.
+ * Version 3 records end after the streamed content and version 2 records after the analysis;
+ * version 1 records, which stored the analysis as a JSON string instead, are still readable too.
+ *
+ * Segments are preallocated, so unwritten space reads as zeros. On startup every segment is
+ * scanned to rebuild the per-user offset index; a torn or corrupt record ends the scan of its
+ * segment and is overwritten by the next append. Index positions refer to segments by the number
+ * in their file name, so a missing segment fails the startup instead of being recreated empty.
+ */
+@Component
+@ConditionalOnProperty(name = "textmate.history.sink", havingValue = "segmented-log")
+public class SegmentedLogOperationLogSink implements OperationLogSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedLogOperationLogSink.class);
+
+    private static final byte FORMAT_VERSION = 4;
+    private static final byte FORMAT_VERSION_NO_SIGNATURE = 3;
+    private static final byte FORMAT_VERSION_NO_STREAMED = 2;
+    private static final byte FORMAT_VERSION_JSON_ANALYSIS = 1;
+    private static final ObjectMapper LEGACY_ANALYSIS_READER = new ObjectMapper();
+    private static final int HEADER_BYTES = 4;
+    private static final int TRAILER_BYTES = 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int fsyncEveryRecords;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<Long, PositionList> userIndex = new HashMap<>();
+    private final ScheduledExecutorService fsyncScheduler;
+
+    private long lastId;
+    private int unsyncedRecords;
+    private boolean dirty;
+
+    public SegmentedLogOperationLogSink(@Value("${textmate.history.log.dir:./data/operation-log}") String directory,
+                                        @Value("${textmate.history.log.segment-bytes:67108864}") int segmentBytes,
+                                        @Value("${textmate.history.log.fsync-every-records:256}") int fsyncEveryRecords,
+                                        @Value("${textmate.history.log.fsync-interval-ms:1000}") long fsyncIntervalMs) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.fsyncEveryRecords = fsyncEveryRecords;
+
+        Files.createDirectories(this.directory);
+        recover();
+
+        if (fsyncIntervalMs > 0) {
+            fsyncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "operation-log-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fsyncScheduler.scheduleWithFixedDelay(this::syncIfDirty, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            fsyncScheduler = null;
+        }
+    }
+
+    @Override
+    public OperationLog append(OperationLog log) {
+        Segment toSync;
+        Segment sealed = null;
+        synchronized (this) {
+            log.setId(++lastId);
+            byte[] body = encode(log);
+            int recordBytes = HEADER_BYTES + body.length + TRAILER_BYTES;
+
+            Segment segment = currentSegment();
+            if (segment == null || segment.remaining() < recordBytes) {
+                sealed = segment; // Sealed segments are always durable, forced below
+                segment = openSegment(segments.size(), Math.max(segmentBytes, recordBytes));
+                segments.add(segment);
+            }
+
+            int offset = segment.writePos;
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            ByteBuffer buffer = segment.buffer;
+            buffer.putInt(offset + HEADER_BYTES + body.length, (int) crc.getValue());
+            buffer.put(offset + HEADER_BYTES, body);
+            buffer.putInt(offset, body.length);
+            segment.writePos += recordBytes;
+
+            if (log.getUser() != null && log.getUser().getId() != null) {
+                userIndex.computeIfAbsent(log.getUser().getId(), id -> new PositionList())
+                        .add(position(segment.index, offset), log.getId());
+            }
+
+            dirty = true;
+            unsyncedRecords++;
+            toSync = fsyncEveryRecords > 0 && unsyncedRecords >= fsyncEveryRecords ? segment : null;
+            if (toSync != null) {
+                unsyncedRecords = 0;
+                dirty = false;
+            }
+        }
+        // Force outside the lock so other writers are not blocked on the disk; nothing writes to a
+        // sealed segment any more, so it is safe to msync it here
+        if (sealed != null) {
+            sealed.buffer.force();
+        }
+        if (toSync != null) {
+            toSync.buffer.force();
+        }
+        return log;
+    }
+
+    @Override
+    public List<OperationLog> findByUserId(Long userId) {
+        long[] positions;
+        Segment[] snapshot;
+        synchronized (this) {
+            PositionList list = userIndex.get(userId);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            positions = list.toArray();
+            snapshot = segments.toArray(new Segment[0]);
+        }
+        // Records below the indexed positions are immutable, so they can be decoded without the lock
+        List<OperationLog> logs = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            logs.add(read(snapshot, position));
+        }
+        return logs;
+    }
+
+    @Override
+    public List<OperationLog> findPageByUserId(Long userId, int page, int size) {
+        long[] positions;
+        Segment[] snapshot;
+        synchronized (this) {
+            PositionList list = userIndex.get(userId);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            positions = list.toArray();
+            snapshot = segments.toArray(new Segment[0]);
+        }
+        // The index is in append order, so the newest page is read from the end backwards
+        int from = (int) Math.max(positions.length - 1 - (long) page * size, -1L);
+        int to = Math.max(from - size, -1);
+        List<OperationLog> logs = new ArrayList<>(Math.max(from - to, 0));
+        for (int i = from; i > to; i--) {
+            logs.add(read(snapshot, positions[i]));
+        }
+        return logs;
+    }
+
+    @Override
+    public List<OperationLogSignature> findSignaturesByUserId(Long userId, int limit) {
+        long[] positions;
+        Segment[] snapshot;
+        synchronized (this) {
+            PositionList list = userIndex.get(userId);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            positions = list.toArray();
+            snapshot = segments.toArray(new Segment[0]);
+        }
+        int to = Math.max(positions.length - limit, 0);
+        List<OperationLogSignature> signatures = new ArrayList<>(positions.length - to);
+        for (int i = positions.length - 1; i >= to; i--) {
+            signatures.add(readSignature(snapshot, positions[i]));
+        }
+        return signatures;
+    }
+
+    @Override
+    public synchronized String historyVersion(Long userId) {
+        // Answered from the in-memory index, without reading any record
+        PositionList list = userIndex.get(userId);
+        return list == null ? "0-0" : list.size + "-" + list.maxId;
+    }
+
+    @Override
+    public Optional<OperationLogTexts> findTextsForUser(Long userId, Long id) {
+        long[] positions;
+        Segment[] snapshot;
+        synchronized (this) {
+            PositionList list = userIndex.get(userId);
+            if (list == null) {
+                return Optional.empty();
+            }
+            positions = list.toArray();
+            snapshot = segments.toArray(new Segment[0]);
+        }
+        // IDs grow in append order, so the user's positions can be binary searched by the ID in each record
+        int low = 0;
+        int high = positions.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = readId(snapshot, positions[mid]);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return Optional.of(readTexts(snapshot, positions[mid]));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (fsyncScheduler != null) {
+            fsyncScheduler.shutdownNow();
+        }
+        synchronized (this) {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close operation log segment {}: {}", segment.index, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void syncIfDirty() {
+        Segment segment;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            segment = currentSegment();
+            dirty = false;
+            unsyncedRecords = 0;
+        }
+        segment.buffer.force();
+    }
+
+    private Segment currentSegment() {
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+
+        int recovered = 0;
+        for (Path file : files) {
+            // Positions in the index refer to segments by number, so a missing file must not shift the rest
+            int index = segmentIndex(file);
+            if (index != segments.size()) {
+                throw new IllegalStateException("Operation log segment " + segments.size() + " is missing in " + directory
+                        + " (next file is " + file.getFileName() + "); restore it before starting");
+            }
+            Segment segment = openSegment(index, (int) Files.size(file));
+            ByteBuffer buffer = segment.buffer.duplicate();
+            int offset = 0;
+            while (offset + HEADER_BYTES + TRAILER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + HEADER_BYTES + length + TRAILER_BYTES > buffer.capacity()) {
+                    break;
+                }
+                ByteBuffer body = buffer.duplicate().position(offset + HEADER_BYTES).limit(offset + HEADER_BYTES + length).slice();
+                CRC32 crc = new CRC32();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(offset + HEADER_BYTES + length)) {
+                    logger.warn("Operation log segment {} has a torn record at offset {}; discarding the rest of it", file, offset);
+                    break;
+                }
+                indexRecord(body, position(segment.index, offset));
+                offset += HEADER_BYTES + length + TRAILER_BYTES;
+                recovered++;
+            }
+            segment.writePos = offset;
+            segments.add(segment);
+        }
+        logger.info("Recovered {} operation log records from {} segments in {}", recovered, segments.size(), directory);
+    }
+
+    private static int segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Unexpected file " + file + " in the operation log directory", e);
+        }
+    }
+
+    private void indexRecord(ByteBuffer body, long position) {
+        body.get(); // format version
+        long id = body.getLong();
+        body.getLong(); // timestamp
+        long userId = getVarLong(body) - 1;
+        lastId = Math.max(lastId, id);
+        if (userId >= 0) {
+            userIndex.computeIfAbsent(userId, k -> new PositionList()).add(position, id);
+        }
+    }
+
+    private Segment openSegment(int index, int capacity) {
+        Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new Segment(index, channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open operation log segment " + path, e);
+        }
+    }
+
+    private static OperationLog read(Segment[] snapshot, long position) {
+        ByteBuffer buffer = snapshot[(int) (position >>> 32)].buffer.duplicate();
+        int offset = (int) position;
+        int length = buffer.getInt(offset);
+        buffer.position(offset + HEADER_BYTES).limit(offset + HEADER_BYTES + length);
+        return decode(buffer.slice());
+    }
+
+    private static long readId(Segment[] snapshot, long position) {
+        // Skips the length header and the format version byte
+        return snapshot[(int) (position >>> 32)].buffer.getLong((int) position + HEADER_BYTES + 1);
+    }
+
+    private static OperationLogTexts readTexts(Segment[] snapshot, long position) {
+        ByteBuffer buffer = snapshot[(int) (position >>> 32)].buffer.duplicate();
+        int offset = (int) position;
+        buffer.position(offset + HEADER_BYTES + 1 + Long.BYTES * 2);
+        getVarLong(buffer); // user ID
+        skipString(buffer); // username
+        skipString(buffer); // session ID
+        skipString(buffer); // operation type
+        return new OperationLogTexts(getString(buffer), getString(buffer));
+    }
+
+    private static OperationLogSignature readSignature(Segment[] snapshot, long position) {
+        ByteBuffer buffer = snapshot[(int) (position >>> 32)].buffer.duplicate();
+        int offset = (int) position;
+        buffer.position(offset + HEADER_BYTES);
+        byte version = buffer.get();
+        long id = buffer.getLong();
+        LocalDateTime timestamp = toLocalDateTime(buffer.getLong());
+        getVarLong(buffer); // user ID
+        skipString(buffer); // username
+        skipString(buffer); // session ID
+        String operationType = getString(buffer);
+        int originalTextPos = buffer.position();
+        skipString(buffer); // original text, decoded below only if the record has no signature
+        skipString(buffer); // transformed text
+        byte[] signature = null;
+        if (version > FORMAT_VERSION_NO_SIGNATURE) {
+            if (getVarLong(buffer) > 0) {
+                // Analysis: charCount, sentenceCount and readTime follow the word count
+                getVarLong(buffer);
+                getVarLong(buffer);
+                getVarLong(buffer);
+            }
+            if (getVarLong(buffer) > 0) {
+                // Streamed content: inputSha256, outputBytes and outputSha256 follow the input size
+                skipString(buffer);
+                getVarLong(buffer);
+                skipString(buffer);
+            }
+            signature = getBytes(buffer);
+        }
+        String originalText = null;
+        if (signature == null) {
+            originalText = getString(buffer.position(originalTextPos));
+        }
+        return new OperationLogSignature(id, operationType, timestamp, signature, originalText);
+    }
+
+    private static long position(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static byte[] encode(OperationLog log) {
+        RecordWriter out = new RecordWriter();
+        out.buffer.put(FORMAT_VERSION);
+        out.ensure(Long.BYTES * 2);
+        out.buffer.putLong(log.getId());
+        out.buffer.putLong(log.getTimestamp() == null ? 0L : log.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        User user = log.getUser();
+        out.putVarLong(user == null || user.getId() == null ? 0L : user.getId() + 1);
+        out.putString(user == null ? null : user.getUsername());
+        out.putString(log.getSessionId());
+        out.putString(log.getOperationType());
+        out.putString(log.getOriginalText());
+        out.putString(log.getTransformedText());
+        TextAnalysisResult analysis = log.getAnalysis();
+        if (analysis == null) {
+            out.putVarLong(0);
+        } else {
+            out.putVarLong(analysis.getWordCount() + 1L);
+            out.putVarLong(analysis.getCharCount());
+            out.putVarLong(analysis.getSentenceCount());
+            out.putVarLong(analysis.getReadTime());
+        }
+        StreamedContent streamed = log.getStreamed();
+        if (streamed == null) {
+            out.putVarLong(0);
+        } else {
+            out.putVarLong(streamed.getInputBytes() + 1);
+            out.putString(streamed.getInputSha256());
+            out.putVarLong(streamed.getOutputBytes());
+            out.putString(streamed.getOutputSha256());
+        }
+        out.putBytes(log.getSimilaritySignature());
+        return Arrays.copyOf(out.buffer.array(), out.buffer.position());
+    }
+
+    private static OperationLog decode(ByteBuffer body) {
+        byte version = body.get();
+        OperationLog log = new OperationLog();
+        log.setId(body.getLong());
+        log.setTimestamp(toLocalDateTime(body.getLong()));
+        long userId = getVarLong(body) - 1;
+        String username = getString(body);
+        if (userId >= 0) {
+            User user = new User();
+            user.setId(userId);
+            user.setUsername(username);
+            log.setUser(user);
+        }
+        log.setSessionId(getString(body));
+        log.setOperationType(getString(body));
+        log.setOriginalText(getString(body));
+        log.setTransformedText(getString(body));
+        if (version == FORMAT_VERSION_JSON_ANALYSIS) {
+            log.setAnalysis(parseLegacyAnalysis(getString(body)));
+        } else {
+            long wordCount = getVarLong(body) - 1;
+            if (wordCount >= 0) {
+                log.setAnalysis(new TextAnalysisResult((int) wordCount, (int) getVarLong(body),
+                        (int) getVarLong(body), (int) getVarLong(body)));
+            }
+        }
+        if (version > FORMAT_VERSION_NO_STREAMED) {
+            long inputBytes = getVarLong(body) - 1;
+            if (inputBytes >= 0) {
+                log.setStreamed(new StreamedContent(inputBytes, getString(body), getVarLong(body), getString(body)));
+            }
+        }
+        if (version > FORMAT_VERSION_NO_SIGNATURE) {
+            log.setSimilaritySignature(getBytes(body));
+        }
+        return log;
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return millis == 0L ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static TextAnalysisResult parseLegacyAnalysis(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return LEGACY_ANALYSIS_READER.readValue(json, TextAnalysisResult.class);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable analysis in a version 1 operation log record: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = (int) getVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getBytes(ByteBuffer in) {
+        int length = (int) getVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = (int) getVarLong(in) - 1;
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+
+    /**
+     * Growable heap buffer used to build a record body before it is copied into the segment.
+     */
+    private static final class RecordWriter {
+        private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                grown.put(buffer.flip());
+                buffer = grown;
+            }
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putVarLong(0);
+                return;
+            }
+            putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void putBytes(byte[] bytes) {
+            if (bytes == null) {
+                putVarLong(0);
+                return;
+            }
+            putVarLong(bytes.length + 1L);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static final class Segment {
+        final int index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePos;
+
+        Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePos;
+        }
+    }
+
+    private static final class PositionList {
+        private long[] items = new long[8];
+        private int size;
+        private long maxId;
+
+        void add(long position, long id) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = position;
+            maxId = Math.max(maxId, id);
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
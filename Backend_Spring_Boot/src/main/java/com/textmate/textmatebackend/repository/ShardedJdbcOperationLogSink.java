@@ -0,0 +1,419 @@
+package com.textmate.textmatebackend.repository;
+
+import com.textmate.textmatebackend.config.ShardingProperties;
+import com.textmate.textmatebackend.model.AnalysisStats;
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.OperationLogSignature;
+import com.textmate.textmatebackend.model.OperationLogTexts;
+import com.textmate.textmatebackend.model.StreamedContent;
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+import com.textmate.textmatebackend.model.User;
+import com.textmate.textmatebackend.util.MinHash;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Operation logs spread over several databases by user: every user's history lives on exactly one
+ * shard, so history reads hit a single database and write throughput scales with the shard count.
+ *
+ * A user is routed to the shard recorded in the shard directory (kept on shard 0) or, if the user
+ * was never moved, to a hash of the user ID. Anonymous entries are hashed by session ID. IDs
+ * returned to clients are global: {@code (shard-local id << 6) | shard index}, so they still
+ * increase with insertion order within a user's history. Moving a user assigns new IDs.
+ *
+ * Growing the shard list changes the hash routing; start once with
+ * {@code textmate.history.rebalance.pin-existing=true} so existing users stay where their rows are.
+ */
+@Component
+@ConditionalOnProperty(name = "textmate.history.sink", havingValue = "sharded")
+public class ShardedJdbcOperationLogSink implements OperationLogSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedJdbcOperationLogSink.class);
+
+    static final int SHARD_BITS = 6;
+    static final int MAX_SHARDS = 1 << SHARD_BITS;
+    private static final int DIRECTORY_SHARD = 0;
+    private static final int LOCK_STRIPES = 256;
+
+    private static final String COLUMNS = "id, user_id, username, session_id, operation_type, original_text, transformed_text, "
+            + "analysis_word_count, analysis_char_count, analysis_sentence_count, analysis_read_time, "
+            + "stream_input_bytes, stream_input_sha256, stream_output_bytes, stream_output_sha256, similarity_signature, created_at";
+    private static final String INSERT = "INSERT INTO sharded_operation_logs "
+            + "(user_id, username, session_id, operation_type, original_text, transformed_text, "
+            + "analysis_word_count, analysis_char_count, analysis_sentence_count, analysis_read_time, "
+            + "stream_input_bytes, stream_input_sha256, stream_output_bytes, stream_output_sha256, similarity_signature, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Columns added after the table was first released, created on startup where missing
+    private static final Map<String, String> ADDED_COLUMNS = Map.of(
+            "stream_input_bytes", "BIGINT NULL",
+            "stream_input_sha256", "CHAR(64) NULL",
+            "stream_output_bytes", "BIGINT NULL",
+            "stream_output_sha256", "CHAR(64) NULL",
+            "similarity_signature", "VARBINARY(4096) NULL");
+
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final List<TransactionTemplate> transactions = new ArrayList<>();
+    private final Map<Long, Integer> directory = new ConcurrentHashMap<>();
+    // Appends take the read lock of their user's stripe, moves take the write lock
+    private final ReentrantReadWriteLock[] userLocks = new ReentrantReadWriteLock[LOCK_STRIPES];
+
+    public ShardedJdbcOperationLogSink(ShardingProperties properties) {
+        List<ShardingProperties.Shard> configured = properties.getShards();
+        if (configured.isEmpty() || configured.size() > MAX_SHARDS) {
+            throw new IllegalStateException("textmate.history.sharding.shards must list between 1 and " + MAX_SHARDS + " datasources.");
+        }
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantReadWriteLock();
+        }
+        for (int i = 0; i < configured.size(); i++) {
+            ShardingProperties.Shard shard = configured.get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("history-shard-" + i);
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(shard.getMaxPoolSize());
+            dataSources.add(dataSource);
+            shards.add(new JdbcTemplate(dataSource));
+            transactions.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+        createSchema();
+        shards.get(DIRECTORY_SHARD).query("SELECT user_id, shard FROM operation_log_shard_directory",
+                (ResultSet rs) -> {
+                    directory.put(rs.getLong(1), rs.getInt(2));
+                });
+        logger.info("Sharded operation log ready: {} shards, {} users in the shard directory", shards.size(), directory.size());
+    }
+
+    private void createSchema() {
+        for (JdbcTemplate shard : shards) {
+            shard.execute("CREATE TABLE IF NOT EXISTS sharded_operation_logs ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "user_id BIGINT NULL, "
+                    + "username VARCHAR(255) NULL, "
+                    + "session_id VARCHAR(255) NULL, "
+                    + "operation_type VARCHAR(255) NULL, "
+                    + "original_text TEXT NULL, "
+                    + "transformed_text TEXT NULL, "
+                    + "analysis_word_count INT NULL, "
+                    + "analysis_char_count INT NULL, "
+                    + "analysis_sentence_count INT NULL, "
+                    + "analysis_read_time INT NULL, "
+                    + "stream_input_bytes BIGINT NULL, "
+                    + "stream_input_sha256 CHAR(64) NULL, "
+                    + "stream_output_bytes BIGINT NULL, "
+                    + "stream_output_sha256 CHAR(64) NULL, "
+                    + "similarity_signature VARBINARY(4096) NULL, "
+                    + "created_at DATETIME(6) NULL, "
+                    + "INDEX idx_sharded_operation_logs_user (user_id, id))");
+            addMissingColumns(shard);
+        }
+        shards.get(DIRECTORY_SHARD).execute("CREATE TABLE IF NOT EXISTS operation_log_shard_directory ("
+                + "user_id BIGINT PRIMARY KEY, "
+                + "shard INT NOT NULL)");
+    }
+
+    private void addMissingColumns(JdbcTemplate shard) {
+        Set<String> existing = new HashSet<>();
+        shard.query("SELECT * FROM sharded_operation_logs WHERE 1 = 0", (ResultSetExtractor<Void>) rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                existing.add(metaData.getColumnName(i).toLowerCase(Locale.ROOT));
+            }
+            return null;
+        });
+        ADDED_COLUMNS.forEach((column, definition) -> {
+            if (!existing.contains(column)) {
+                shard.execute("ALTER TABLE sharded_operation_logs ADD COLUMN " + column + " " + definition);
+                logger.info("Added column {} to sharded_operation_logs", column);
+            }
+        });
+    }
+
+    /**
+     * @return The number of configured shards.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return The shard currently holding the given user's history.
+     */
+    public int shardForUser(long userId) {
+        Integer pinned = directory.get(userId);
+        // Mixed so that sequential user IDs spread evenly over the shards
+        return pinned != null ? pinned : Math.floorMod(MinHash.mix(userId), shards.size());
+    }
+
+    private int shardForSession(String sessionId) {
+        return sessionId == null ? 0 : Math.floorMod(MinHash.mix(sessionId.hashCode()), shards.size());
+    }
+
+    @Override
+    public OperationLog append(OperationLog log) {
+        User user = log.getUser();
+        if (user == null || user.getId() == null) {
+            insert(shardForSession(log.getSessionId()), log);
+            return log;
+        }
+        Lock lock = lockFor(user.getId()).readLock();
+        lock.lock();
+        try {
+            insert(shardForUser(user.getId()), log);
+        } finally {
+            lock.unlock();
+        }
+        return log;
+    }
+
+    private void insert(int shard, OperationLog log) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        shards.get(shard).update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS);
+            bind(statement, log);
+            return statement;
+        }, keys);
+        log.setId(globalId(keys.getKey().longValue(), shard));
+    }
+
+    @Override
+    public List<OperationLog> findByUserId(Long userId) {
+        int shard = shardForUser(userId);
+        return shards.get(shard).query("SELECT " + COLUMNS + " FROM sharded_operation_logs WHERE user_id = ? ORDER BY id",
+                rowMapper(shard), userId);
+    }
+
+    @Override
+    public List<OperationLog> findPageByUserId(Long userId, int page, int size) {
+        int shard = shardForUser(userId);
+        return shards.get(shard).query("SELECT " + COLUMNS + " FROM sharded_operation_logs WHERE user_id = ? ORDER BY id DESC LIMIT ? OFFSET ?",
+                rowMapper(shard), userId, size, (long) page * size);
+    }
+
+    @Override
+    public Optional<OperationLogTexts> findTextsForUser(Long userId, Long id) {
+        int shard = shardForUser(userId);
+        if ((id & (MAX_SHARDS - 1)) != shard) {
+            return Optional.empty();
+        }
+        return shards.get(shard).query("SELECT original_text, transformed_text FROM sharded_operation_logs WHERE id = ? AND user_id = ?",
+                (rs, rowNum) -> new OperationLogTexts(rs.getString(1), rs.getString(2)), id >>> SHARD_BITS, userId)
+                .stream().findFirst();
+    }
+
+    @Override
+    public List<OperationLogSignature> findSignaturesByUserId(Long userId, int limit) {
+        int shard = shardForUser(userId);
+        return shards.get(shard).query("SELECT id, operation_type, created_at, similarity_signature, "
+                        + "CASE WHEN similarity_signature IS NULL THEN original_text END "
+                        + "FROM sharded_operation_logs WHERE user_id = ? ORDER BY id DESC LIMIT ?",
+                (rs, rowNum) -> {
+                    Timestamp createdAt = rs.getTimestamp(3);
+                    return new OperationLogSignature(globalId(rs.getLong(1), shard), rs.getString(2),
+                            createdAt == null ? null : createdAt.toLocalDateTime(), rs.getBytes(4), rs.getString(5));
+                },
+                userId, limit);
+    }
+
+    @Override
+    public String historyVersion(Long userId) {
+        // MAX(id) reads as 0 for a user without entries
+        return shards.get(shardForUser(userId)).queryForObject("SELECT COUNT(*), MAX(id) FROM sharded_operation_logs WHERE user_id = ?",
+                (rs, rowNum) -> rs.getLong(1) + "-" + rs.getLong(2), userId);
+    }
+
+    @Override
+    public List<OperationLog> findAnalysesByUserId(Long userId, int minWords, int page, int size) {
+        int shard = shardForUser(userId);
+        return shards.get(shard).query("SELECT " + COLUMNS + " FROM sharded_operation_logs "
+                        + "WHERE user_id = ? AND analysis_word_count > ? ORDER BY id DESC LIMIT ? OFFSET ?",
+                rowMapper(shard), userId, minWords, size, (long) page * size);
+    }
+
+    @Override
+    public AnalysisStats analysisStatsForUser(Long userId) {
+        return shards.get(shardForUser(userId)).queryForObject("SELECT COUNT(*), SUM(analysis_word_count), "
+                        + "AVG(analysis_word_count), MAX(analysis_word_count), SUM(analysis_char_count), "
+                        + "SUM(analysis_sentence_count), SUM(analysis_read_time) FROM sharded_operation_logs "
+                        + "WHERE user_id = ? AND analysis_word_count IS NOT NULL",
+                // JDBC getters return 0 for the NULL aggregates of a user without analyses
+                (rs, rowNum) -> new AnalysisStats(rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getInt(4),
+                        rs.getLong(5), rs.getLong(6), rs.getLong(7)),
+                userId);
+    }
+
+    /**
+     * Moves a user's history to another shard and pins the user there in the shard directory.
+     * Appends for the user wait while the move runs. The steps are idempotent, so an interrupted
+     * move can simply be repeated: rows already copied to the target are replaced, and leftovers
+     * on the old shard are removed when the user is found to be on the target already.
+     * Moves are coordinated within this process only; other writers must be stopped meanwhile.
+     * @param userId The ID of the user to move.
+     * @param target The index of the destination shard.
+     * @return The number of entries moved.
+     */
+    public int moveUser(long userId, int target) {
+        if (target < 0 || target >= shards.size()) {
+            throw new IllegalArgumentException("Unknown shard " + target + ", expected 0.." + (shards.size() - 1) + ".");
+        }
+        Lock lock = lockFor(userId).writeLock();
+        lock.lock();
+        try {
+            int source = shardForUser(userId);
+            if (source == target) {
+                removeStrays(userId, target);
+                return 0;
+            }
+            List<OperationLog> logs = shards.get(source).query(
+                    "SELECT " + COLUMNS + " FROM sharded_operation_logs WHERE user_id = ? ORDER BY id",
+                    rowMapper(source), userId);
+            transactions.get(target).executeWithoutResult(status -> {
+                JdbcTemplate shard = shards.get(target);
+                shard.update("DELETE FROM sharded_operation_logs WHERE user_id = ?", userId);
+                shard.batchUpdate(INSERT, logs, 500, this::bind);
+            });
+            pin(userId, target);
+            shards.get(source).update("DELETE FROM sharded_operation_logs WHERE user_id = ?", userId);
+            logger.info("Moved {} operation logs of user {} from shard {} to shard {}", logs.size(), userId, source, target);
+            return logs.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pins every user found on a shard other than its hash shard to where its rows are.
+     * Run this once after growing the shard list, before accepting traffic.
+     * @return The number of users pinned.
+     */
+    public int pinExistingUsers() {
+        int pinned = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<Long> userIds = shards.get(shard).queryForList(
+                    "SELECT DISTINCT user_id FROM sharded_operation_logs WHERE user_id IS NOT NULL", Long.class);
+            for (Long userId : userIds) {
+                if (!directory.containsKey(userId) && shardForUser(userId) != shard) {
+                    pin(userId, shard);
+                    pinned++;
+                }
+            }
+        }
+        return pinned;
+    }
+
+    private void pin(long userId, int shard) {
+        JdbcTemplate directoryShard = shards.get(DIRECTORY_SHARD);
+        if (directoryShard.update("UPDATE operation_log_shard_directory SET shard = ? WHERE user_id = ?", shard, userId) == 0) {
+            directoryShard.update("INSERT INTO operation_log_shard_directory (user_id, shard) VALUES (?, ?)", userId, shard);
+        }
+        directory.put(userId, shard);
+    }
+
+    private void removeStrays(long userId, int home) {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shard != home) {
+                int removed = shards.get(shard).update("DELETE FROM sharded_operation_logs WHERE user_id = ?", userId);
+                if (removed > 0) {
+                    logger.info("Removed {} leftover operation logs of user {} from shard {}", removed, userId, shard);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    private ReentrantReadWriteLock lockFor(long userId) {
+        return userLocks[Math.floorMod(MinHash.mix(userId), LOCK_STRIPES)];
+    }
+
+    private void bind(PreparedStatement statement, OperationLog log) throws SQLException {
+        User user = log.getUser();
+        statement.setObject(1, user == null ? null : user.getId());
+        statement.setString(2, user == null ? null : user.getUsername());
+        statement.setString(3, log.getSessionId());
+        statement.setString(4, log.getOperationType());
+        statement.setString(5, log.getOriginalText());
+        statement.setString(6, log.getTransformedText());
+        TextAnalysisResult analysis = log.getAnalysis();
+        statement.setObject(7, analysis == null ? null : analysis.getWordCount());
+        statement.setObject(8, analysis == null ? null : analysis.getCharCount());
+        statement.setObject(9, analysis == null ? null : analysis.getSentenceCount());
+        statement.setObject(10, analysis == null ? null : analysis.getReadTime());
+        StreamedContent streamed = log.getStreamed();
+        statement.setObject(11, streamed == null ? null : streamed.getInputBytes());
+        statement.setString(12, streamed == null ? null : streamed.getInputSha256());
+        statement.setObject(13, streamed == null ? null : streamed.getOutputBytes());
+        statement.setString(14, streamed == null ? null : streamed.getOutputSha256());
+        statement.setBytes(15, log.getSimilaritySignature());
+        statement.setTimestamp(16, log.getTimestamp() == null ? null : Timestamp.valueOf(log.getTimestamp()));
+    }
+
+    private static RowMapper<OperationLog> rowMapper(int shard) {
+        return (rs, rowNum) -> {
+            OperationLog log = new OperationLog();
+            log.setId(globalId(rs.getLong("id"), shard));
+            long userId = rs.getLong("user_id");
+            if (!rs.wasNull()) {
+                User user = new User();
+                user.setId(userId);
+                user.setUsername(rs.getString("username"));
+                log.setUser(user);
+            }
+            log.setSessionId(rs.getString("session_id"));
+            log.setOperationType(rs.getString("operation_type"));
+            log.setOriginalText(rs.getString("original_text"));
+            log.setTransformedText(rs.getString("transformed_text"));
+            int wordCount = rs.getInt("analysis_word_count");
+            if (!rs.wasNull()) {
+                log.setAnalysis(new TextAnalysisResult(wordCount, rs.getInt("analysis_char_count"),
+                        rs.getInt("analysis_sentence_count"), rs.getInt("analysis_read_time")));
+            }
+            long inputBytes = rs.getLong("stream_input_bytes");
+            if (!rs.wasNull()) {
+                log.setStreamed(new StreamedContent(inputBytes, rs.getString("stream_input_sha256"),
+                        rs.getLong("stream_output_bytes"), rs.getString("stream_output_sha256")));
+            }
+            log.setSimilaritySignature(rs.getBytes("similarity_signature"));
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            log.setTimestamp(createdAt == null ? null : createdAt.toLocalDateTime());
+            return log;
+        };
+    }
+
+    private static long globalId(long localId, int shard) {
+        return (localId << SHARD_BITS) | shard;
+    }
+}
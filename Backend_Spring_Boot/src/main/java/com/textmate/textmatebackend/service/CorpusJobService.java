@@ -0,0 +1,523 @@
+package com.textmate.textmatebackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.textmate.textmatebackend.model.CorpusJob;
+import com.textmate.textmatebackend.util.TextUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Runs bulk corpus jobs (zip of text files or NDJSON with {"id", "text"} lines) in the background.
+ *
+ * Each job lives in its own directory under {@code textmate.jobs.dir}. Items are processed in batches
+ * on a shared worker pool; after every batch the results are appended to {@code results.ndjson} and a
+ * checkpoint records how many items and result bytes are final. On startup unfinished jobs are resumed
+ * from their checkpoint, and anything written after it is truncated away.
+ */
+@Service
+public class CorpusJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CorpusJobService.class);
+
+    public static final Set<String> OPERATIONS = Set.of("uppercase", "lowercase", "titlecase", "reverse", "analyze");
+
+    private static final String CORPUS_FILE = "corpus";
+    private static final String JOB_FILE = "job.properties";
+    private static final String CHECKPOINT_FILE = "checkpoint.properties";
+    private static final String RESULTS_FILE = "results.ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final Path jobsDir;
+    private final int batchSize;
+    private final int maxItemBytes;
+    private final int memoryBudgetBytes;
+
+    private final ExecutorService jobRunner;
+    private final ExecutorService workers;
+    private final Semaphore memoryBudget;
+    private final Map<String, CorpusJob> jobs = new ConcurrentHashMap<>();
+
+    public CorpusJobService(ObjectMapper objectMapper,
+                            @Value("${textmate.jobs.dir:./data/jobs}") String jobsDir,
+                            @Value("${textmate.jobs.workers:0}") int workers,
+                            @Value("${textmate.jobs.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                            @Value("${textmate.jobs.batch-size:256}") int batchSize,
+                            @Value("${textmate.jobs.max-item-bytes:4194304}") int maxItemBytes,
+                            @Value("${textmate.jobs.memory-budget-bytes:134217728}") int memoryBudgetBytes) {
+        this.objectMapper = objectMapper;
+        this.jobsDir = Paths.get(jobsDir);
+        this.batchSize = batchSize;
+        this.maxItemBytes = maxItemBytes;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.jobRunner = Executors.newFixedThreadPool(maxConcurrentJobs, namedThreads("corpus-job-"));
+        this.workers = Executors.newFixedThreadPool(workers > 0 ? workers : Runtime.getRuntime().availableProcessors(),
+                namedThreads("corpus-worker-"));
+        this.memoryBudget = new Semaphore(memoryBudgetBytes, true);
+    }
+
+    /**
+     * Loads the jobs found on disk and resumes the unfinished ones from their last checkpoint.
+     */
+    @PostConstruct
+    public void resumeJobs() throws IOException {
+        Files.createDirectories(jobsDir);
+        try (Stream<Path> dirs = Files.list(jobsDir)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                try {
+                    CorpusJob job = readJob(dir);
+                    jobs.put(job.getId(), job);
+                    if (job.getStatus() == CorpusJob.Status.QUEUED || job.getStatus() == CorpusJob.Status.RUNNING) {
+                        logger.info("Resuming corpus job {} at item {}", job.getId(), job.getProcessedItems());
+                        jobRunner.submit(() -> run(job));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Skipping unreadable corpus job directory {}: {}", dir, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs stop at the next batch and resume from their checkpoint after a restart
+        jobRunner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stores the uploaded corpus and queues a job for it.
+     * @param ownerId The ID of the submitting user.
+     * @param upload The corpus, either a .zip of text files or NDJSON lines with "id" and "text".
+     * @param operation One of {@link #OPERATIONS}.
+     * @return The queued job.
+     */
+    public CorpusJob submit(Long ownerId, MultipartFile upload, String operation) throws IOException {
+        String name = upload.getOriginalFilename() == null ? "" : upload.getOriginalFilename().toLowerCase();
+        String format = name.endsWith(".zip") || "application/zip".equals(upload.getContentType()) ? "zip" : "ndjson";
+
+        CorpusJob job = new CorpusJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setOwnerId(ownerId);
+        job.setOperation(operation);
+        job.setFormat(format);
+        job.setStatus(CorpusJob.Status.QUEUED);
+        job.setCreatedAt(LocalDateTime.now());
+
+        Path dir = Files.createDirectories(jobsDir.resolve(job.getId()));
+        upload.transferTo(dir.resolve(CORPUS_FILE));
+        job.setTotalItems(countItems(dir.resolve(CORPUS_FILE), format));
+        writeJob(dir, job);
+
+        jobs.put(job.getId(), job);
+        jobRunner.submit(() -> run(job));
+        return job;
+    }
+
+    /**
+     * @return The job if it exists and belongs to the given user.
+     */
+    public Optional<CorpusJob> getJob(Long ownerId, String jobId) {
+        CorpusJob job = jobs.get(jobId);
+        return job != null && job.getOwnerId().equals(ownerId) ? Optional.of(job) : Optional.empty();
+    }
+
+    /**
+     * @return The results file of a completed job.
+     */
+    public Path getResultsFile(CorpusJob job) {
+        return jobsDir.resolve(job.getId()).resolve(RESULTS_FILE);
+    }
+
+    private void run(CorpusJob job) {
+        Path dir = jobsDir.resolve(job.getId());
+        try {
+            job.setStatus(CorpusJob.Status.RUNNING);
+            writeJob(dir, job);
+
+            Properties checkpoint = readProperties(dir.resolve(CHECKPOINT_FILE));
+            long skip = Long.parseLong(checkpoint.getProperty("processed", "0"));
+            long resultBytes = Long.parseLong(checkpoint.getProperty("resultBytes", "0"));
+            job.setProcessedItems(skip);
+            job.setFailedItems(Long.parseLong(checkpoint.getProperty("failed", "0")));
+
+            try (FileChannel results = FileChannel.open(dir.resolve(RESULTS_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 ItemReader items = openItems(dir.resolve(CORPUS_FILE), job.getFormat())) {
+                // Drop whatever a crashed run wrote after its last checkpoint
+                results.truncate(resultBytes);
+                results.position(resultBytes);
+                items.skip(skip);
+
+                List<Item> batch = new ArrayList<>(batchSize);
+                while (true) {
+                    batch.clear();
+                    int batchBytes = 0;
+                    while (batch.size() < batchSize && batchBytes < memoryBudgetBytes / 4 && items.hasNext()) {
+                        Item item = items.next();
+                        batch.add(item);
+                        batchBytes += item.bytes;
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    processBatch(job, batch, batchBytes, results);
+                    writeCheckpoint(dir, job, results.position());
+                }
+            }
+
+            job.setStatus(CorpusJob.Status.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            writeJob(dir, job);
+            logger.info("Corpus job {} completed: {} items, {} failed", job.getId(), job.getProcessedItems(), job.getFailedItems());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Corpus job {} interrupted at item {}; it will resume on restart", job.getId(), job.getProcessedItems());
+        } catch (Exception e) {
+            logger.error("Corpus job {} failed: {}", job.getId(), e.getMessage());
+            job.setStatus(CorpusJob.Status.FAILED);
+            job.setError(e.getMessage());
+            job.setFinishedAt(LocalDateTime.now());
+            try {
+                writeJob(dir, job);
+            } catch (IOException ignored) {
+                // The in-memory status is still reported to clients
+            }
+        }
+    }
+
+    private void processBatch(CorpusJob job, List<Item> batch, int batchBytes, FileChannel results) throws Exception {
+        // Input plus output of one batch must fit in the shared memory budget
+        int permits = (int) Math.min(2L * batchBytes, memoryBudgetBytes);
+        memoryBudget.acquire(permits);
+        try {
+            List<Callable<ItemResult>> tasks = new ArrayList<>(batch.size());
+            for (Item item : batch) {
+                tasks.add(() -> processItem(job.getOperation(), item));
+            }
+            StringBuilder lines = new StringBuilder();
+            long failed = 0;
+            for (Future<ItemResult> future : workers.invokeAll(tasks)) {
+                ItemResult result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Worker failed: " + e.getCause().getMessage(), e.getCause());
+                }
+                if (result.failed()) {
+                    failed++;
+                }
+                lines.append(result.line()).append('\n');
+            }
+            results.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+            results.force(false);
+            job.setFailedItems(job.getFailedItems() + failed);
+            job.setProcessedItems(job.getProcessedItems() + batch.size());
+        } finally {
+            memoryBudget.release(permits);
+        }
+    }
+
+    private ItemResult processItem(String operation, Item item) throws IOException {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("id", item.id);
+        if (item.error != null) {
+            result.put("error", item.error);
+            return new ItemResult(objectMapper.writeValueAsString(result), true);
+        }
+        switch (operation) {
+            case "uppercase" -> result.put("transformedText", TextUtils.toUpperCase(item.text));
+            case "lowercase" -> result.put("transformedText", TextUtils.toLowerCase(item.text));
+            case "titlecase" -> result.put("transformedText", TextUtils.toTitleCase(item.text));
+            case "reverse" -> result.put("transformedText", TextUtils.reverseText(item.text));
+            case "analyze" -> result.set("analysis", objectMapper.valueToTree(TextUtils.analyzeText(item.text)));
+            default -> throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+        return new ItemResult(objectMapper.writeValueAsString(result), false);
+    }
+
+    private long countItems(Path corpus, String format) throws IOException {
+        long count = 0;
+        try (ItemReader items = openItems(corpus, format)) {
+            while (items.hasNext()) {
+                items.skip(1);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private ItemReader openItems(Path corpus, String format) throws IOException {
+        return "zip".equals(format) ? new ZipItemReader(corpus) : new NdjsonItemReader(corpus);
+    }
+
+    private void writeCheckpoint(Path dir, CorpusJob job, long resultBytes) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("processed", Long.toString(job.getProcessedItems()));
+        checkpoint.setProperty("failed", Long.toString(job.getFailedItems()));
+        checkpoint.setProperty("resultBytes", Long.toString(resultBytes));
+        writeProperties(dir.resolve(CHECKPOINT_FILE), checkpoint);
+    }
+
+    private void writeJob(Path dir, CorpusJob job) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("id", job.getId());
+        properties.setProperty("ownerId", job.getOwnerId().toString());
+        properties.setProperty("operation", job.getOperation());
+        properties.setProperty("format", job.getFormat());
+        properties.setProperty("status", job.getStatus().name());
+        properties.setProperty("totalItems", Long.toString(job.getTotalItems()));
+        properties.setProperty("createdAt", job.getCreatedAt().toString());
+        if (job.getFinishedAt() != null) {
+            properties.setProperty("finishedAt", job.getFinishedAt().toString());
+            properties.setProperty("processed", Long.toString(job.getProcessedItems()));
+            properties.setProperty("failed", Long.toString(job.getFailedItems()));
+        }
+        if (job.getError() != null) {
+            properties.setProperty("error", job.getError());
+        }
+        writeProperties(dir.resolve(JOB_FILE), properties);
+    }
+
+    private CorpusJob readJob(Path dir) throws IOException {
+        Properties properties = readProperties(dir.resolve(JOB_FILE));
+        Properties checkpoint = readProperties(dir.resolve(CHECKPOINT_FILE));
+        CorpusJob job = new CorpusJob();
+        job.setId(properties.getProperty("id"));
+        job.setOwnerId(Long.parseLong(properties.getProperty("ownerId")));
+        job.setOperation(properties.getProperty("operation"));
+        job.setFormat(properties.getProperty("format"));
+        job.setStatus(CorpusJob.Status.valueOf(properties.getProperty("status")));
+        job.setTotalItems(Long.parseLong(properties.getProperty("totalItems")));
+        job.setCreatedAt(LocalDateTime.parse(properties.getProperty("createdAt")));
+        if (properties.getProperty("finishedAt") != null) {
+            job.setFinishedAt(LocalDateTime.parse(properties.getProperty("finishedAt")));
+        }
+        job.setProcessedItems(Long.parseLong(properties.getProperty("processed", checkpoint.getProperty("processed", "0"))));
+        job.setFailedItems(Long.parseLong(properties.getProperty("failed", checkpoint.getProperty("failed", "0"))));
+        job.setError(properties.getProperty("error"));
+        return job;
+    }
+
+    private static Properties readProperties(Path file) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    // Write to a temporary file and rename, so a crash never leaves a half-written checkpoint
+    private static void writeProperties(Path file, Properties properties) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Item {
+        final String id;
+        final String text;
+        final String error;
+        final int bytes;
+
+        Item(String id, String text, String error) {
+            this.id = id;
+            this.text = text;
+            this.error = error;
+            this.bytes = text == null ? 0 : text.length() * 2;
+        }
+    }
+
+    private record ItemResult(String line, boolean failed) {
+    }
+
+    /**
+     * Sequential reader over the items of a corpus, in a stable order so that checkpoints can skip by count.
+     */
+    private abstract class ItemReader implements Iterator<Item>, AutoCloseable {
+        abstract void skip(long count) throws IOException;
+
+        @Override
+        public abstract void close() throws IOException;
+    }
+
+    private final class ZipItemReader extends ItemReader {
+        private final ZipFile zip;
+        private final Enumeration<? extends ZipEntry> entries;
+        private ZipEntry next;
+
+        ZipItemReader(Path corpus) throws IOException {
+            this.zip = new ZipFile(corpus.toFile(), StandardCharsets.UTF_8);
+            this.entries = zip.entries();
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    next = entry;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        void skip(long count) {
+            for (long i = 0; i < count && next != null; i++) {
+                advance();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Item next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            ZipEntry entry = next;
+            advance();
+            if (entry.getSize() > maxItemBytes) {
+                return new Item(entry.getName(), null, "Item exceeds " + maxItemBytes + " bytes.");
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                byte[] bytes = in.readNBytes(maxItemBytes + 1);
+                if (bytes.length > maxItemBytes) {
+                    return new Item(entry.getName(), null, "Item exceeds " + maxItemBytes + " bytes.");
+                }
+                return new Item(entry.getName(), new String(bytes, StandardCharsets.UTF_8), null);
+            } catch (IOException e) {
+                return new Item(entry.getName(), null, "Unreadable entry: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    private final class NdjsonItemReader extends ItemReader {
+        private final BufferedReader reader;
+        private String nextLine;
+        private long lineNumber;
+
+        NdjsonItemReader(Path corpus) throws IOException {
+            this.reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8);
+            advance();
+        }
+
+        private void advance() throws IOException {
+            // Blank lines are not items
+            do {
+                nextLine = reader.readLine();
+                lineNumber++;
+            } while (nextLine != null && nextLine.isBlank());
+        }
+
+        @Override
+        void skip(long count) throws IOException {
+            for (long i = 0; i < count && nextLine != null; i++) {
+                advance();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLine != null;
+        }
+
+        @Override
+        public Item next() {
+            if (nextLine == null) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            String fallbackId = "line-" + lineNumber;
+            try {
+                advance();
+            } catch (IOException e) {
+                nextLine = null;
+            }
+            if (line.length() * 2L > maxItemBytes) {
+                return new Item(fallbackId, null, "Item exceeds " + maxItemBytes + " bytes.");
+            }
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                String id = node.hasNonNull("id") ? node.get("id").asText() : fallbackId;
+                JsonNode text = node.get("text");
+                if (text == null || !text.isTextual()) {
+                    return new Item(id, null, "Missing \"text\" field.");
+                }
+                return new Item(id, text.asText(), null);
+            } catch (IOException e) {
+                return new Item(fallbackId, null, "Invalid JSON: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
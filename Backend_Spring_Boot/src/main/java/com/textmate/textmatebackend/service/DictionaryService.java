@@ -0,0 +1,91 @@
+package com.textmate.textmatebackend.service;
+
+import com.textmate.textmatebackend.model.DictionaryInfo;
+import com.textmate.textmatebackend.util.AhoCorasick;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the sensitive-term dictionary used by the mask and highlight operations.
+ *
+ * The dictionary files (UTF-8, one term per line, {@code #} for comments) are compiled into an
+ * {@link AhoCorasick} automaton at startup. {@link #reload()} builds a new automaton next to the
+ * current one and swaps it in atomically, so scans in flight finish on the automaton they started
+ * with and never see a half-built one.
+ */
+@Service
+public class DictionaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryService.class);
+
+    private record Loaded(AhoCorasick automaton, List<String> files, LocalDateTime loadedAt) {
+    }
+
+    private final List<String> paths;
+    private final boolean wholeWords;
+    private final AtomicReference<Loaded> current =
+            new AtomicReference<>(new Loaded(AhoCorasick.empty(), List.of(), LocalDateTime.now()));
+
+    public DictionaryService(@Value("${textmate.dictionary.paths:}") List<String> paths,
+                             @Value("${textmate.dictionary.whole-words:true}") boolean wholeWords) {
+        this.paths = paths.stream().map(String::trim).filter(path -> !path.isEmpty()).toList();
+        this.wholeWords = wholeWords;
+    }
+
+    // A dictionary that cannot be read at startup fails the startup rather than masking nothing
+    @PostConstruct
+    public void load() throws IOException {
+        reload();
+    }
+
+    /**
+     * Rereads the dictionary files and replaces the automaton. On failure the current one is kept.
+     * @return The new dictionary's statistics.
+     * @throws IOException If a dictionary file cannot be read.
+     */
+    public synchronized DictionaryInfo reload() throws IOException {
+        long started = System.nanoTime();
+        List<String> terms = new ArrayList<>();
+        for (String path : paths) {
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && !line.stripLeading().startsWith("#")) {
+                        terms.add(line);
+                    }
+                }
+            }
+        }
+        AhoCorasick automaton = AhoCorasick.build(terms, wholeWords);
+        current.set(new Loaded(automaton, paths, LocalDateTime.now()));
+        logger.info("Loaded {} dictionary terms ({} states) from {} files in {} ms", automaton.getTermCount(),
+                automaton.getStateCount(), paths.size(), (System.nanoTime() - started) / 1_000_000);
+        return getInfo();
+    }
+
+    /**
+     * @return The current automaton; hold on to it for the whole scan of one text.
+     */
+    public AhoCorasick getDictionary() {
+        return current.get().automaton();
+    }
+
+    public DictionaryInfo getInfo() {
+        Loaded loaded = current.get();
+        return new DictionaryInfo(loaded.automaton().getTermCount(), loaded.automaton().getStateCount(),
+                loaded.automaton().isWholeWords(), loaded.files(), loaded.loadedAt());
+    }
+}
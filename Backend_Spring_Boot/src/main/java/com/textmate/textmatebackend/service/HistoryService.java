@@ -1,26 +1,132 @@
 package com.textmate.textmatebackend.service;
 
+import com.textmate.textmatebackend.model.AnalysisStats;
+import com.textmate.textmatebackend.model.DiffResult;
 import com.textmate.textmatebackend.model.OperationLog;
-import com.textmate.textmatebackend.repository.OperationLogRepository;
+import com.textmate.textmatebackend.model.OperationLogTexts;
+import com.textmate.textmatebackend.model.SimilarOperation;
+import com.textmate.textmatebackend.repository.OperationLogSink;
+import com.textmate.textmatebackend.util.TextDiff;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class HistoryService {
 
-    private final OperationLogRepository operationLogRepository;
+    private final OperationLogSink operationLogSink;
+    private final HotHistoryCache hotHistoryCache;
+    private final SimilarityIndex similarityIndex;
+    private final TextService textService;
 
-    public HistoryService(OperationLogRepository operationLogRepository) {
-        this.operationLogRepository = operationLogRepository;
+    public HistoryService(OperationLogSink operationLogSink, HotHistoryCache hotHistoryCache,
+                          SimilarityIndex similarityIndex, TextService textService) {
+        this.operationLogSink = operationLogSink;
+        this.hotHistoryCache = hotHistoryCache;
+        this.similarityIndex = similarityIndex;
+        this.textService = textService;
     }
 
     /**
-     * Retrieves the operation history for a specific user, ordered by timestamp in descending order.
+     * Retrieves the operation history for a specific user from the configured log sink, oldest first.
+     * The hot tier only holds the newest entries, so the full history always comes from the sink.
      * @param userId The ID of the user whose history is to be retrieved.
      * @return A list of OperationLog objects representing the user's history.
      */
     public List<OperationLog> getHistoryForUser(Long userId) {
-        return operationLogRepository.findByUserId(userId);
+        return operationLogSink.findByUserId(userId);
+    }
+
+    /**
+     * Retrieves one page of a user's history, newest first.
+     * Pages that fall within the hot window are served from memory; older pages go to the log sink.
+     * @param userId The ID of the user whose history is to be retrieved.
+     * @param page The zero-based page number.
+     * @param size The page size.
+     * @return The OperationLog objects of the requested page.
+     */
+    public List<OperationLog> getHistoryPageForUser(Long userId, int page, int size) {
+        long end = (long) page * size + size;
+        if (end <= hotHistoryCache.getCapacityPerUser()) {
+            return hotHistoryCache.getRecent(userId, page * size, size);
+        }
+        return operationLogSink.findPageByUserId(userId, page, size);
+    }
+
+    /**
+     * Retrieves one page of a user's analyses with more than minWords words, newest first.
+     * The filter runs in the history store on the typed analysis columns.
+     * @param userId The ID of the user whose analyses are to be retrieved.
+     * @param minWords Only analyses with a word count greater than this are returned.
+     * @param page The zero-based page number.
+     * @param size The page size.
+     * @return The matching analyze operations.
+     */
+    public List<OperationLog> getAnalysesForUser(Long userId, int minWords, int page, int size) {
+        return operationLogSink.findAnalysesByUserId(userId, minWords, page, size);
+    }
+
+    /**
+     * Aggregates a user's analyses (count, word/char/sentence totals, average and maximum word count).
+     * @param userId The ID of the user.
+     * @return The aggregates, all zero if the user has no analyses.
+     */
+    public AnalysisStats getAnalysisStatsForUser(Long userId) {
+        return operationLogSink.analysisStatsForUser(userId);
+    }
+
+    /**
+     * Finds the user's past operations on a similar text, e.g. an earlier draft of the same document.
+     * @param userId The ID of the user whose history is searched.
+     * @param text The text to compare with the original texts of the history.
+     * @param threshold The minimum estimated Jaccard similarity, 0 to 1.
+     * @param limit The maximum number of results.
+     * @return The similar entries, most similar first.
+     */
+    public List<SimilarOperation> findSimilarForUser(Long userId, String text, double threshold, int limit) {
+        return similarityIndex.findSimilar(userId, text, threshold, limit);
+    }
+
+    /**
+     * Diffs the original text of one of the user's entries against its transformed text.
+     * @param userId The ID of the user who must own the entry.
+     * @param id The ID of the entry.
+     * @param granularity The token size of the diff.
+     * @return The diff, or empty if the entry is not found.
+     * @throws IllegalArgumentException If the entry has no transformed text or is too large to diff.
+     */
+    public Optional<DiffResult> diffEntry(Long userId, Long id, TextDiff.Granularity granularity) {
+        Optional<OperationLogTexts> texts = operationLogSink.findTextsForUser(userId, id);
+        if (texts.isEmpty()) {
+            return Optional.empty();
+        }
+        if (texts.get().transformedText() == null) {
+            throw new IllegalArgumentException("Entry " + id + " has no transformed text to compare with.");
+        }
+        return Optional.of(textService.diff(texts.get().originalText(), texts.get().transformedText(), granularity));
+    }
+
+    /**
+     * Diffs the result text of two of the user's entries: the transformed text, or the original
+     * text for operations that do not transform (such as analyze).
+     * @param userId The ID of the user who must own both entries.
+     * @param fromId The ID of the older entry.
+     * @param toId The ID of the newer entry.
+     * @param granularity The token size of the diff.
+     * @return The diff, or empty if either entry is not found.
+     * @throws IllegalArgumentException If the texts are too large to diff.
+     */
+    public Optional<DiffResult> diffEntries(Long userId, Long fromId, Long toId, TextDiff.Granularity granularity) {
+        Optional<OperationLogTexts> from = operationLogSink.findTextsForUser(userId, fromId);
+        Optional<OperationLogTexts> to = from.isEmpty() ? Optional.empty() : operationLogSink.findTextsForUser(userId, toId);
+        if (to.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(textService.diff(resultText(from.get()), resultText(to.get()), granularity));
+    }
+
+    private static String resultText(OperationLogTexts texts) {
+        return texts.transformedText() != null ? texts.transformedText() : texts.originalText();
     }
 }
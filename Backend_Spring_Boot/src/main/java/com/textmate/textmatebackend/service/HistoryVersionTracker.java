@@ -0,0 +1,65 @@
+package com.textmate.textmatebackend.service;
+
+import com.textmate.textmatebackend.repository.OperationLogSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a monotonically increasing history version per user so that unchanged
+ * history can be answered with 304 Not Modified without touching the database.
+ *
+ * The counters live in memory only, so every ETag also carries the epoch of this
+ * process; a restart therefore invalidates all previously issued tags instead of
+ * reusing version numbers that described different data.
+ *
+ * In-memory counters only see writes served by this process. When several instances
+ * share the history store ({@code textmate.history.multi-instance=true}), the version is
+ * read from the store instead: one small aggregate query per request, which still saves
+ * loading and serializing the history when it has not changed.
+ */
+@Component
+public class HistoryVersionTracker {
+
+    private final OperationLogSink operationLogSink;
+    private final boolean multiInstance;
+
+    private final ConcurrentMap<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    public HistoryVersionTracker(OperationLogSink operationLogSink,
+                                 @Value("${textmate.history.multi-instance:false}") boolean multiInstance) {
+        this.operationLogSink = operationLogSink;
+        this.multiInstance = multiInstance;
+    }
+
+    /**
+     * Records that the history of the given user has changed.
+     * Must be called after the write is visible to readers (i.e. after the save has committed).
+     * @param userId The ID of the user whose history changed.
+     */
+    public void bump(Long userId) {
+        if (userId == null || multiInstance) {
+            return;
+        }
+        versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Builds the strong ETag value (including quotes) for the current history of the given user.
+     * Callers must build the tag before loading the history itself: a write racing
+     * with the read then only produces a tag that is older than the data, never newer.
+     * @param userId The ID of the user.
+     * @return The ETag, the same on every instance in multi-instance mode.
+     */
+    public String currentEtag(Long userId) {
+        if (multiInstance) {
+            return "\"h-s-" + userId + "-" + operationLogSink.historyVersion(userId) + "\"";
+        }
+        AtomicLong version = versions.get(userId);
+        return "\"h-" + epoch + "-" + userId + "-" + (version == null ? 0L : version.get()) + "\"";
+    }
+}
@@ -0,0 +1,233 @@
+package com.textmate.textmatebackend.service;
+
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.repository.OperationLogSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hot tier for recent history: a bounded ring buffer of the newest operations of each active user.
+ *
+ * Rings are loaded lazily from the {@link OperationLogSink} on first read and kept up to date by
+ * {@link #onAppend(Long, OperationLog)}. When the estimated size of all rings exceeds the global
+ * budget, the rings of the least recently active users are dropped; they are reloaded on demand.
+ *
+ * Only appends made through this process reach a loaded ring, so the tier is switched off when
+ * several instances share the history store ({@code textmate.history.multi-instance=true});
+ * every page then comes from the sink.
+ */
+@Component
+public class HotHistoryCache {
+
+    // Rough per-entry overhead of an OperationLog and its fields, on top of the text payloads
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+    private static final long ANALYSIS_BYTES = 32;
+    private static final long STREAMED_BYTES = 336;
+
+    private final OperationLogSink operationLogSink;
+    private final int capacityPerUser;
+    private final long maxBytes;
+
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public HotHistoryCache(OperationLogSink operationLogSink,
+                           @Value("${textmate.history.hot.capacity-per-user:50}") int capacityPerUser,
+                           @Value("${textmate.history.hot.max-bytes:67108864}") long maxBytes,
+                           @Value("${textmate.history.multi-instance:false}") boolean multiInstance) {
+        this.operationLogSink = operationLogSink;
+        // With no capacity, no page falls within the hot window, so no ring is ever loaded
+        this.capacityPerUser = multiInstance ? 0 : capacityPerUser;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The number of recent entries kept per user; pages within this window are served from memory.
+     *         Zero in multi-instance mode.
+     */
+    public int getCapacityPerUser() {
+        return capacityPerUser;
+    }
+
+    /**
+     * Returns the newest entries of a user, newest first, loading the user's ring on first access.
+     * @param userId The ID of the user.
+     * @param offset The number of newest entries to skip.
+     * @param limit The maximum number of entries to return; offset + limit must not exceed the capacity.
+     * @return The requested entries, without touching the database if the ring is already loaded.
+     */
+    public List<OperationLog> getRecent(Long userId, int offset, int limit) {
+        Ring ring = rings.computeIfAbsent(userId, id -> new Ring(capacityPerUser));
+        ring.lastAccess = System.nanoTime();
+        if (!ring.loaded) {
+            // Appends racing with the load are buffered in the ring and merged by ID afterwards
+            List<OperationLog> newestFirst = operationLogSink.findPageByUserId(userId, 0, capacityPerUser);
+            totalBytes.addAndGet(ring.install(newestFirst));
+            evictIfOverBudget();
+            if (!ring.loaded) {
+                // The ring was evicted before it could be installed; answer from what we just loaded
+                return newestFirst.subList(Math.min(offset, newestFirst.size()), Math.min(offset + limit, newestFirst.size()));
+            }
+        }
+        return ring.snapshot(offset, limit);
+    }
+
+    /**
+     * Adds a freshly written entry to the user's ring if that user is currently hot.
+     * Users without a ring are left alone; their ring is loaded from the sink on the next read.
+     */
+    public void onAppend(Long userId, OperationLog log) {
+        Ring ring = rings.get(userId);
+        if (ring == null) {
+            return;
+        }
+        ring.lastAccess = System.nanoTime();
+        totalBytes.addAndGet(ring.add(log));
+        evictIfOverBudget();
+    }
+
+    private void evictIfOverBudget() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (totalBytes.get() <= maxBytes) {
+                return;
+            }
+            // Drop the coldest users until we are back under 90% of the budget, so eviction is amortized
+            long target = maxBytes - maxBytes / 10;
+            List<Map.Entry<Long, Ring>> byAge = new ArrayList<>(rings.entrySet());
+            byAge.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<Long, Ring> entry : byAge) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                if (rings.remove(entry.getKey(), entry.getValue())) {
+                    totalBytes.addAndGet(-entry.getValue().release());
+                }
+            }
+        }
+    }
+
+    private static long estimateBytes(OperationLog log) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        bytes += sizeOf(log.getSessionId()) + sizeOf(log.getOperationType()) + sizeOf(log.getOriginalText())
+                + sizeOf(log.getTransformedText()) + (log.getAnalysis() == null ? 0 : ANALYSIS_BYTES)
+                + (log.getStreamed() == null ? 0 : STREAMED_BYTES)
+                + (log.getSimilaritySignature() == null ? 0 : 16L + log.getSimilaritySignature().length);
+        return bytes;
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : 40L + value.length() * 2L;
+    }
+
+    /**
+     * Fixed-size ring of the newest entries of one user. All access is synchronized on the ring.
+     */
+    private static final class Ring {
+        private final OperationLog[] entries;
+        private int head; // index of the next slot to write
+        private int size;
+        private long bytes;
+        private boolean released;
+        private List<OperationLog> pending = new ArrayList<>();
+
+        volatile boolean loaded;
+        volatile long lastAccess = System.nanoTime();
+
+        Ring(int capacity) {
+            this.entries = new OperationLog[Math.max(capacity, 1)];
+        }
+
+        synchronized long add(OperationLog log) {
+            if (released) {
+                return 0;
+            }
+            if (!loaded) {
+                pending.add(log);
+                return 0;
+            }
+            return push(log);
+        }
+
+        synchronized long install(List<OperationLog> newestFirst) {
+            if (loaded || released) {
+                return 0;
+            }
+            long delta = 0;
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                delta += push(newestFirst.get(i));
+            }
+            // Appends racing with the load may already be part of it; push skips those by ID
+            for (OperationLog log : pending) {
+                delta += push(log);
+            }
+            pending = null;
+            loaded = true;
+            return delta;
+        }
+
+        synchronized List<OperationLog> snapshot(int offset, int limit) {
+            List<OperationLog> result = new ArrayList<>(Math.max(Math.min(limit, size - offset), 0));
+            for (int i = offset; i < size && result.size() < limit; i++) {
+                result.add(entries[slot(i)]);
+            }
+            return result;
+        }
+
+        synchronized long release() {
+            released = true;
+            return bytes;
+        }
+
+        /**
+         * Inserts an entry at its place by ID, so appends that finish out of order still end up newest first.
+         * Entries already in the ring, and entries older than a full ring, are skipped.
+         */
+        private long push(OperationLog log) {
+            int newer = 0; // number of entries that stay in front of the new one
+            if (log.getId() != null) {
+                for (; newer < size; newer++) {
+                    Long id = entries[slot(newer)].getId();
+                    if (log.getId().equals(id)) {
+                        return 0;
+                    }
+                    if (id == null || id < log.getId()) {
+                        break;
+                    }
+                }
+                if (newer == entries.length) {
+                    return 0;
+                }
+            }
+            long delta = estimateBytes(log);
+            if (size == entries.length) {
+                delta -= estimateBytes(entries[head]);
+            } else {
+                size++;
+            }
+            // Move the newer entries up by one slot; on a full ring this overwrites the oldest entry
+            for (int i = 0; i < newer; i++) {
+                int from = slot(i);
+                entries[(from + 1) % entries.length] = entries[from];
+            }
+            entries[Math.floorMod(head - newer, entries.length)] = log;
+            head = (head + 1) % entries.length;
+            bytes += delta;
+            return delta;
+        }
+
+        // Slot of the i-th newest entry
+        private int slot(int i) {
+            return Math.floorMod(head - 1 - i, entries.length);
+        }
+    }
+}
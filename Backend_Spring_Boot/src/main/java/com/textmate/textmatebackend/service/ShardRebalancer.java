@@ -0,0 +1,59 @@
+package com.textmate.textmatebackend.service;
+
+import com.textmate.textmatebackend.repository.ShardedJdbcOperationLogSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Startup tool for the sharded history sink. Pins existing users after the shard list has grown
+ * and/or moves users to other shards, e.g.:
+ * <pre>
+ *   java -jar app.jar --spring.main.web-application-type=none \
+ *        --textmate.history.rebalance.pin-existing=true \
+ *        --textmate.history.rebalance.moves=42:1,97:3
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty(name = "textmate.history.sink", havingValue = "sharded")
+public class ShardRebalancer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final ShardedJdbcOperationLogSink sink;
+    private final boolean pinExisting;
+    private final String moves;
+
+    public ShardRebalancer(ShardedJdbcOperationLogSink sink,
+                           @Value("${textmate.history.rebalance.pin-existing:false}") boolean pinExisting,
+                           @Value("${textmate.history.rebalance.moves:}") String moves) {
+        this.sink = sink;
+        this.pinExisting = pinExisting;
+        this.moves = moves;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (pinExisting) {
+            logger.info("Pinned {} existing users to their current shard", sink.pinExistingUsers());
+        }
+        if (moves.isBlank()) {
+            return;
+        }
+        int users = 0;
+        long entries = 0;
+        for (String move : moves.split(",")) {
+            String[] parts = move.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid move '" + move + "', expected userId:shard.");
+            }
+            entries += sink.moveUser(Long.parseLong(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            users++;
+        }
+        logger.info("Rebalancing finished: {} users, {} operation logs moved", users, entries);
+    }
+}
@@ -0,0 +1,299 @@
+package com.textmate.textmatebackend.service;
+
+import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.OperationLogSignature;
+import com.textmate.textmatebackend.model.SimilarOperation;
+import com.textmate.textmatebackend.repository.OperationLogSink;
+import com.textmate.textmatebackend.util.MinHash;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Near-duplicate index over the original texts of each user's history: a MinHash signature per
+ * entry, bucketed by locality-sensitive hashing. The signature is split into bands of a few slots;
+ * two texts land in the same bucket of a band if that whole band is equal, which is likely for
+ * similar texts and unlikely for dissimilar ones. A lookup therefore touches one bucket per band
+ * instead of the whole history, and only the candidates found there are compared slot by slot.
+ *
+ * Signatures are computed once, when an entry is written ({@link #sign(String)}), and stored with
+ * the entry. Like {@link HotHistoryCache}, a user's index is built lazily on the first lookup, from
+ * the stored signatures alone, and then kept up to date by {@link #onAppend(Long, OperationLog)};
+ * users who never look anything up cost nothing in memory. When the estimated size of all indexes
+ * exceeds the global budget, the indexes of the least recently active users are dropped and rebuilt
+ * on demand. Entries stored before signatures were kept are signed from their text while loading;
+ * entries signed with other shingle, band or row settings are left out.
+ */
+@Component
+public class SimilarityIndex {
+
+    // Rough per-entry overhead (entry object, deque slot, ID set slot) on top of the signature, and per band bucket slot
+    private static final long ENTRY_OVERHEAD_BYTES = 144;
+    private static final long BUCKET_SLOT_BYTES = 64;
+
+    // Encoded signatures are stored in a 4096-byte column: 4 bytes per slot plus a 4-byte header
+    private static final int MAX_SLOTS = 1023;
+
+    private final OperationLogSink operationLogSink;
+    private final MinHash minHash;
+    private final int bands;
+    private final int rows;
+    private final int maxEntriesPerUser;
+    private final long maxBytes;
+    private final long entryBytes;
+
+    private final Map<Long, UserIndex> indexes = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public SimilarityIndex(OperationLogSink operationLogSink,
+                           @Value("${textmate.similarity.shingle-chars:5}") int shingleChars,
+                           @Value("${textmate.similarity.bands:32}") int bands,
+                           @Value("${textmate.similarity.rows:4}") int rows,
+                           @Value("${textmate.similarity.max-entries-per-user:10000}") int maxEntriesPerUser,
+                           @Value("${textmate.similarity.max-bytes:67108864}") long maxBytes) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("textmate.similarity.bands and rows must be positive.");
+        }
+        if ((long) bands * rows > MAX_SLOTS) {
+            throw new IllegalArgumentException("textmate.similarity.bands times rows must not exceed " + MAX_SLOTS + ".");
+        }
+        this.operationLogSink = operationLogSink;
+        this.minHash = new MinHash(bands * rows, shingleChars);
+        this.bands = bands;
+        this.rows = rows;
+        this.maxEntriesPerUser = maxEntriesPerUser;
+        this.maxBytes = maxBytes;
+        this.entryBytes = ENTRY_OVERHEAD_BYTES + 16L + 4L * bands * rows + BUCKET_SLOT_BYTES * bands;
+    }
+
+    /**
+     * Finds the user's past operations whose original text is similar to the given text, loading
+     * the user's index on first access.
+     * @param userId The ID of the user whose history is searched.
+     * @param text The text to compare with.
+     * @param threshold The minimum estimated Jaccard similarity of the shingle sets, 0 to 1.
+     * @param limit The maximum number of results.
+     * @return The matching entries, most similar first; empty if the text has no shingles.
+     */
+    public List<SimilarOperation> findSimilar(Long userId, String text, double threshold, int limit) {
+        int[] signature = minHash.signature(text);
+        if (signature == null) {
+            return List.of();
+        }
+        UserIndex index = indexes.computeIfAbsent(userId, id -> new UserIndex());
+        index.lastAccess = System.nanoTime();
+        if (!index.loaded) {
+            // Appends racing with the load are buffered in the index and merged by ID afterwards
+            List<Entry> newestFirst = new ArrayList<>();
+            for (OperationLogSignature stored : operationLogSink.findSignaturesByUserId(userId, maxEntriesPerUser)) {
+                Entry entry = toEntry(stored);
+                if (entry != null) {
+                    newestFirst.add(entry);
+                }
+            }
+            totalBytes.addAndGet(index.install(newestFirst));
+            evictIfOverBudget();
+            if (!index.loaded) {
+                // The index was evicted before it could be installed; answer from a throwaway copy
+                UserIndex transientIndex = new UserIndex();
+                transientIndex.install(newestFirst);
+                return transientIndex.query(signature, threshold, limit);
+            }
+        }
+        return index.query(signature, threshold, limit);
+    }
+
+    /**
+     * Computes the signature to store with a new entry.
+     * @param originalText The original text of the entry.
+     * @return The encoded signature, or null if the text is null or has no shingles.
+     */
+    public byte[] sign(String originalText) {
+        int[] signature = originalText == null ? null : minHash.signature(originalText);
+        return signature == null ? null : minHash.encode(signature);
+    }
+
+    /**
+     * Adds a freshly written entry, with the signature stored by {@link #sign(String)}, to the user's
+     * index if that index is in memory. Users without an index are left alone; their index is built
+     * from the sink on the next lookup.
+     */
+    public void onAppend(Long userId, OperationLog log) {
+        UserIndex index = indexes.get(userId);
+        if (index == null || log.getId() == null) {
+            return;
+        }
+        int[] signature = minHash.decode(log.getSimilaritySignature());
+        if (signature == null) {
+            return;
+        }
+        Entry entry = new Entry(log.getId(), log.getOperationType(), log.getTimestamp(), signature);
+        index.lastAccess = System.nanoTime();
+        totalBytes.addAndGet(index.add(entry));
+        evictIfOverBudget();
+    }
+
+    private Entry toEntry(OperationLogSignature stored) {
+        if (stored.id() == null) {
+            return null;
+        }
+        int[] signature;
+        if (stored.signature() != null) {
+            signature = minHash.decode(stored.signature());
+        } else {
+            // Written before signatures were stored
+            signature = stored.originalText() == null ? null : minHash.signature(stored.originalText());
+        }
+        return signature == null ? null : new Entry(stored.id(), stored.operationType(), stored.timestamp(), signature);
+    }
+
+    private void evictIfOverBudget() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (totalBytes.get() <= maxBytes) {
+                return;
+            }
+            // Drop the coldest users until we are back under 90% of the budget, so eviction is amortized
+            long target = maxBytes - maxBytes / 10;
+            List<Map.Entry<Long, UserIndex>> byAge = new ArrayList<>(indexes.entrySet());
+            byAge.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<Long, UserIndex> entry : byAge) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                if (indexes.remove(entry.getKey(), entry.getValue())) {
+                    totalBytes.addAndGet(-entry.getValue().release());
+                }
+            }
+        }
+    }
+
+    // One bucket key per band; the band number is mixed in so all bands can share one map
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows, end = i + rows; i < end; i++) {
+            key = MinHash.mix(key * 31 + signature[i]);
+        }
+        return key;
+    }
+
+    // Identified by the log ID alone, so the same entry loaded and appended twice is recognized
+    private record Entry(long id, String operationType, LocalDateTime timestamp, int[] signature) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry entry && entry.id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+
+    /**
+     * The signatures of one user's newest entries and their band buckets. All access is synchronized on the index.
+     */
+    private final class UserIndex {
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>(); // oldest first
+        private final Map<Long, List<Entry>> buckets = new HashMap<>();
+        private final Set<Long> ids = new HashSet<>();
+        private long bytes;
+        private boolean released;
+        private List<Entry> pending = new ArrayList<>();
+
+        volatile boolean loaded;
+        volatile long lastAccess = System.nanoTime();
+
+        synchronized long add(Entry entry) {
+            if (released) {
+                return 0;
+            }
+            if (!loaded) {
+                pending.add(entry);
+                return 0;
+            }
+            return push(entry);
+        }
+
+        synchronized long install(List<Entry> newestFirst) {
+            if (loaded || released) {
+                return 0;
+            }
+            long delta = 0;
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                delta += push(newestFirst.get(i));
+            }
+            // Appends racing with the load may already be part of it; push skips those by ID
+            for (Entry entry : pending) {
+                delta += push(entry);
+            }
+            pending = null;
+            loaded = true;
+            return delta;
+        }
+
+        synchronized List<SimilarOperation> query(int[] signature, double threshold, int limit) {
+            Set<Entry> candidates = new HashSet<>();
+            for (int band = 0; band < bands; band++) {
+                List<Entry> bucket = buckets.get(bandKey(signature, band));
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            List<SimilarOperation> result = new ArrayList<>();
+            for (Entry candidate : candidates) {
+                double similarity = MinHash.similarity(signature, candidate.signature());
+                if (similarity >= threshold) {
+                    result.add(new SimilarOperation(candidate.id(), candidate.operationType(), candidate.timestamp(), similarity));
+                }
+            }
+            result.sort(Comparator.comparingDouble(SimilarOperation::getSimilarity).reversed()
+                    .thenComparing(SimilarOperation::getId, Comparator.reverseOrder()));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        }
+
+        synchronized long release() {
+            released = true;
+            return bytes;
+        }
+
+        private long push(Entry entry) {
+            if (!ids.add(entry.id())) {
+                return 0;
+            }
+            long delta = entryBytes;
+            entries.addLast(entry);
+            for (int band = 0; band < bands; band++) {
+                buckets.computeIfAbsent(bandKey(entry.signature(), band), key -> new ArrayList<>(1)).add(entry);
+            }
+            if (entries.size() > maxEntriesPerUser) {
+                Entry oldest = entries.removeFirst();
+                ids.remove(oldest.id());
+                for (int band = 0; band < bands; band++) {
+                    long key = bandKey(oldest.signature(), band);
+                    List<Entry> bucket = buckets.get(key);
+                    bucket.remove(oldest);
+                    if (bucket.isEmpty()) {
+                        buckets.remove(key);
+                    }
+                }
+                delta -= entryBytes;
+            }
+            bytes += delta;
+            return delta;
+        }
+    }
+}
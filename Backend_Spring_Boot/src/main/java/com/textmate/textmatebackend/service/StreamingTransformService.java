@@ -0,0 +1,384 @@
+package com.textmate.textmatebackend.service;
+
+import com.textmate.textmatebackend.model.StreamedContent;
+import com.textmate.textmatebackend.util.TextUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Case conversion and reversal of texts too large to hold as a String, for {@code /api/stream/*}.
+ *
+ * The request body is spooled first: kept on the heap up to a threshold, otherwise written to a
+ * temporary file, while its SHA-256 is computed and its UTF-8 is validated, so a bad upload is
+ * rejected before any of the response has been sent. The spooled bytes are then transformed one
+ * window at a time; file windows are memory-mapped, so the heap only ever holds one window's worth
+ * of chars. Case conversion walks forward and converts each window in pieces, cut where the
+ * context-dependent final sigma cannot be affected (see {@link #safeCut}), so the result is the same
+ * as for the whole text.
+ * Reversal walks the windows from the end and moves each window start past UTF-8 continuation bytes,
+ * so no code point, and thus no surrogate pair, is ever split; the result is identical to reversing
+ * the whole text.
+ *
+ * The history entry records only the sizes and digests of input and output.
+ */
+@Service
+public class StreamingTransformService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingTransformService.class);
+
+    public static final Set<String> OPERATIONS = Set.of("uppercase", "lowercase", "reverse");
+
+    private static final int READ_CHUNK_BYTES = 64 * 1024;
+    private static final String SPOOL_SUFFIX = ".spool";
+    private static final char CAPITAL_SIGMA = '\u03A3';
+    // String.toUpperCase copies its whole result for every char that expands (e.g. sharp s to "SS"),
+    // so windows are converted in pieces to keep that from growing with the window size
+    private static final int MAX_PIECE_CHARS = 4096;
+
+    private final TextService textService;
+    private final Path spoolDir;
+    private final int memoryThresholdBytes;
+    private final long maxBytes;
+    private final int windowBytes;
+    private final Semaphore permits;
+
+    public StreamingTransformService(TextService textService,
+                                     @Value("${textmate.stream.spool-dir:./data/stream-spool}") String spoolDir,
+                                     @Value("${textmate.stream.memory-threshold-bytes:1048576}") int memoryThresholdBytes,
+                                     @Value("${textmate.stream.max-bytes:1073741824}") long maxBytes,
+                                     @Value("${textmate.stream.window-bytes:1048576}") int windowBytes,
+                                     @Value("${textmate.stream.max-concurrent:4}") int maxConcurrent) {
+        this.textService = textService;
+        this.spoolDir = Paths.get(spoolDir);
+        this.memoryThresholdBytes = memoryThresholdBytes;
+        this.maxBytes = maxBytes;
+        // A window must hold at least one whole code point
+        this.windowBytes = Math.max(windowBytes, 16);
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Creates the spool directory and removes files left behind by a previous run.
+     */
+    @PostConstruct
+    public void cleanSpoolDir() throws IOException {
+        Files.createDirectories(spoolDir);
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SPOOL_SUFFIX)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Reads and spools a request body for a streamed transform. The caller must close the returned
+     * transform, which also frees its slot among the concurrent streams.
+     * @param operation One of {@link #OPERATIONS}.
+     * @param body The UTF-8 request body.
+     * @param sessionId The session ID from the client, used for anonymous tracking.
+     * @return The spooled input, ready to be written out transformed.
+     * @throws IllegalArgumentException If the operation is unknown, or the body is empty or not valid UTF-8.
+     * @throws StreamTooLargeException If the body exceeds the configured maximum.
+     * @throws IllegalStateException If the maximum number of concurrent streams is reached.
+     */
+    public Transform open(String operation, InputStream body, String sessionId) throws IOException {
+        if (!OPERATIONS.contains(operation)) {
+            throw new IllegalArgumentException("Unsupported streaming operation: " + operation);
+        }
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("Too many streaming transforms in progress, please retry later.");
+        }
+        Transform transform = new Transform(operation, sessionId);
+        try {
+            transform.spool(body);
+            return transform;
+        } catch (IOException | RuntimeException e) {
+            transform.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Thrown when a streamed request body is larger than {@code textmate.stream.max-bytes}.
+     */
+    public static class StreamTooLargeException extends RuntimeException {
+
+        public StreamTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One spooled request body: on the heap below the memory threshold, in a temporary file above it.
+     */
+    public final class Transform implements AutoCloseable {
+
+        private final String operation;
+        private final String sessionId;
+        private byte[] memory = new byte[0];
+        private Path file;
+        private FileChannel channel;
+        private long size;
+        private String inputSha256;
+        private boolean closed;
+
+        private Transform(String operation, String sessionId) {
+            this.operation = operation;
+            this.sessionId = sessionId;
+        }
+
+        public long getInputBytes() {
+            return size;
+        }
+
+        public String getInputSha256() {
+            return inputSha256;
+        }
+
+        private void spool(InputStream body) throws IOException {
+            MessageDigest digest = sha256();
+            CharsetDecoder validator = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            // Holds the undecoded tail of the previous chunk (at most 3 bytes) plus the next chunk
+            ByteBuffer pending = ByteBuffer.allocate(READ_CHUNK_BYTES + 4);
+            CharBuffer scratch = CharBuffer.allocate(READ_CHUNK_BYTES);
+            byte[] chunk = new byte[READ_CHUNK_BYTES];
+            int read;
+            while ((read = body.read(chunk)) != -1) {
+                if (size + read > maxBytes) {
+                    throw new StreamTooLargeException("The text is larger than the limit of " + maxBytes + " bytes.");
+                }
+                digest.update(chunk, 0, read);
+                store(chunk, read);
+                pending.put(chunk, 0, read).flip();
+                validate(validator, pending, scratch, false);
+                pending.compact();
+            }
+            pending.flip();
+            validate(validator, pending, scratch, true);
+            if (size == 0) {
+                throw new IllegalArgumentException("Please send some text to transform.");
+            }
+            inputSha256 = HexFormat.of().formatHex(digest.digest());
+        }
+
+        private void store(byte[] chunk, int length) throws IOException {
+            if (channel == null && size + length <= memoryThresholdBytes) {
+                if (size + length > memory.length) {
+                    memory = Arrays.copyOf(memory, (int) Math.min(Math.max(memory.length * 2L, size + length), memoryThresholdBytes));
+                }
+                System.arraycopy(chunk, 0, memory, (int) size, length);
+                size += length;
+                return;
+            }
+            if (channel == null) {
+                file = Files.createTempFile(spoolDir, "stream-", SPOOL_SUFFIX);
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                writeFully(ByteBuffer.wrap(memory, 0, (int) size));
+                memory = null;
+            }
+            writeFully(ByteBuffer.wrap(chunk, 0, length));
+            size += length;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        /**
+         * Writes the transformed text and records the operation in the history.
+         * @param out The response body.
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            MessageDigest digest = sha256();
+            long[] outputBytes = new long[1];
+            OutputStream counting = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    digest.update(bytes, offset, length);
+                    outputBytes[0] += length;
+                    out.write(bytes, offset, length);
+                }
+            };
+            switch (operation) {
+                case "uppercase" -> convertCase(counting, TextUtils::toUpperCase);
+                case "lowercase" -> convertCase(counting, TextUtils::toLowerCase);
+                default -> reverse(counting);
+            }
+            out.flush();
+            textService.recordStreamedOperation(operation,
+                    new StreamedContent(size, inputSha256, outputBytes[0], HexFormat.of().formatHex(digest.digest())), sessionId);
+        }
+
+        private void convertCase(OutputStream out, UnaryOperator<String> kernel) throws IOException {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+            int pieceChars = Math.min(MAX_PIECE_CHARS, windowBytes);
+            // A window decodes to at most windowBytes chars, and less than a piece is carried over
+            CharBuffer chars = CharBuffer.allocate(windowBytes + pieceChars);
+            long offset = 0;
+            boolean finished = false;
+            while (!finished) {
+                int length = (int) Math.min(windowBytes, size - offset);
+                boolean endOfInput = offset + length == size;
+                ByteBuffer in = window(offset, length);
+                decoder.decode(in, chars, endOfInput);
+                // A code point cut by the window end stays undecoded and starts the next window
+                offset += in.position();
+                finished = endOfInput && offset == size;
+                if (finished) {
+                    decoder.flush(chars);
+                }
+                chars.flip();
+                char[] array = chars.array();
+                int from = 0;
+                int limit = chars.limit();
+                while (limit - from > pieceChars || (finished && from < limit)) {
+                    int to = limit - from <= pieceChars ? limit : safeCut(array, from, from + pieceChars);
+                    out.write(kernel.apply(new String(array, from, to - from)).getBytes(StandardCharsets.UTF_8));
+                    from = to;
+                }
+                chars.position(from);
+                chars.compact();
+            }
+        }
+
+        private void reverse(OutputStream out) throws IOException {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+            CharBuffer chars = CharBuffer.allocate(windowBytes);
+            long end = size;
+            while (end > 0) {
+                long start = Math.max(end - windowBytes, 0);
+                ByteBuffer in = window(start, (int) (end - start));
+                // Continuation bytes at the window start belong to a code point of the next window back
+                int skip = 0;
+                while (start + skip > 0 && (in.get(skip) & 0xC0) == 0x80) {
+                    skip++;
+                }
+                in.position(skip);
+                chars.clear();
+                decoder.reset();
+                decoder.decode(in, chars, true);
+                decoder.flush(chars);
+                chars.flip();
+                out.write(new StringBuilder(chars).reverse().toString().getBytes(StandardCharsets.UTF_8));
+                end = start + skip;
+            }
+        }
+
+        // Heap slices below the memory threshold, read-only mappings of the spool file above it
+        private ByteBuffer window(long offset, int length) throws IOException {
+            if (channel == null) {
+                return ByteBuffer.wrap(memory, (int) offset, length).slice();
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            memory = null;
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+                if (file != null) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not delete stream spool file {}: {}", file, e.getMessage());
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private static void validate(CharsetDecoder validator, ByteBuffer in, CharBuffer scratch, boolean endOfInput) {
+        CoderResult result;
+        do {
+            scratch.clear();
+            result = validator.decode(in, scratch, endOfInput);
+        } while (result.isOverflow());
+        if (endOfInput && !result.isError()) {
+            scratch.clear();
+            result = validator.flush(scratch);
+        }
+        if (result.isError()) {
+            throw new IllegalArgumentException("The text is not valid UTF-8.");
+        }
+    }
+
+    /**
+     * Chooses where to end a piece so that case conversion gives the same result as on the whole text:
+     * after the last whitespace char, or else between the last two adjacent cased letters other than
+     * capital sigma, so every sigma keeps the letters that decide its final form on its side of the cut.
+     * A piece with neither is cut at its end. A surrogate pair is never split.
+     * @return The end of the piece, after {@code from}.
+     */
+    private static int safeCut(char[] chars, int from, int limit) {
+        for (int i = limit - 1; i > from; i--) {
+            char c = chars[i];
+            if (Character.isWhitespace(c)) {
+                return i + 1;
+            }
+            if (Character.isLowSurrogate(c) && Character.isHighSurrogate(chars[i - 1])) {
+                continue;
+            }
+            if (isCasedNonSigma(Character.codePointAt(chars, i, limit)) && isCasedNonSigma(Character.codePointBefore(chars, i, from))) {
+                return i;
+            }
+        }
+        // Pieces are at least 16 chars, so stepping back off a high surrogate leaves a non-empty piece
+        return Character.isHighSurrogate(chars[limit - 1]) ? limit - 1 : limit;
+    }
+
+    private static boolean isCasedNonSigma(int codePoint) {
+        return codePoint != CAPITAL_SIGMA
+                && (Character.isLowerCase(codePoint) || Character.isUpperCase(codePoint) || Character.isTitleCase(codePoint));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,32 +1,82 @@
 package com.textmate.textmatebackend.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.textmate.textmatebackend.model.DiffResult;
 import com.textmate.textmatebackend.model.OperationLog;
+import com.textmate.textmatebackend.model.ReplaceRequest;
+import com.textmate.textmatebackend.model.StreamedContent;
 import com.textmate.textmatebackend.model.TextAnalysisResult;
 import com.textmate.textmatebackend.model.User; // New import
-import com.textmate.textmatebackend.repository.OperationLogRepository;
+import com.textmate.textmatebackend.monitoring.OperationLogWriteEvent;
+import com.textmate.textmatebackend.repository.OperationLogSink;
+import com.textmate.textmatebackend.util.PatternCache;
+import com.textmate.textmatebackend.util.TextDiff;
 import com.textmate.textmatebackend.util.TextUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 @Service
 public class TextService {
 
     private static final Logger logger = LoggerFactory.getLogger(TextService.class);
-    private final OperationLogRepository operationLogRepository;
+    private final OperationLogSink operationLogSink;
+    private final HistoryVersionTracker historyVersionTracker;
+    private final HotHistoryCache hotHistoryCache;
+    private final SimilarityIndex similarityIndex;
+    private final DictionaryService dictionaryService;
 
-    // For converting TextAnalysisResult to JSON string for logging
-    private final ObjectMapper objectMapper;
+    private final PatternCache patternCache;
+    private final int maxPatternLength;
+    private final long regexMaxSteps;
+    private final long regexTimeoutMillis;
+    private final int regexMaxInputChars;
+    private final int diffMaxInputChars;
+    private final long diffTimeoutMillis;
+    private final char maskChar;
+    private final String highlightPrefix;
+    private final String highlightSuffix;
+    private final boolean highlightEscapeHtml;
 
-    public TextService(OperationLogRepository operationLogRepository, ObjectMapper objectMapper) {
-        this.operationLogRepository = operationLogRepository;
-        this.objectMapper = objectMapper;
+    public TextService(OperationLogSink operationLogSink,
+                       HistoryVersionTracker historyVersionTracker,
+                       HotHistoryCache hotHistoryCache,
+                       SimilarityIndex similarityIndex,
+                       DictionaryService dictionaryService,
+                       @Value("${textmate.replace.pattern-cache-size:256}") int patternCacheSize,
+                       @Value("${textmate.replace.max-pattern-length:1000}") int maxPatternLength,
+                       @Value("${textmate.replace.max-steps:50000000}") long regexMaxSteps,
+                       @Value("${textmate.replace.timeout-ms:250}") long regexTimeoutMillis,
+                       @Value("${textmate.replace.max-regex-input-chars:1000000}") int regexMaxInputChars,
+                       @Value("${textmate.diff.max-input-chars:2000000}") int diffMaxInputChars,
+                       @Value("${textmate.diff.timeout-ms:1000}") long diffTimeoutMillis,
+                       @Value("${textmate.dictionary.mask-char:*}") char maskChar,
+                       @Value("${textmate.dictionary.highlight-prefix:<mark>}") String highlightPrefix,
+                       @Value("${textmate.dictionary.highlight-suffix:</mark>}") String highlightSuffix,
+                       @Value("${textmate.dictionary.highlight-escape-html:true}") boolean highlightEscapeHtml) {
+        this.operationLogSink = operationLogSink;
+        this.historyVersionTracker = historyVersionTracker;
+        this.hotHistoryCache = hotHistoryCache;
+        this.similarityIndex = similarityIndex;
+        this.dictionaryService = dictionaryService;
+        this.patternCache = new PatternCache(patternCacheSize);
+        this.maxPatternLength = maxPatternLength;
+        this.regexMaxSteps = regexMaxSteps;
+        this.regexTimeoutMillis = regexTimeoutMillis;
+        this.regexMaxInputChars = regexMaxInputChars;
+        this.diffMaxInputChars = diffMaxInputChars;
+        this.diffTimeoutMillis = diffTimeoutMillis;
+        this.maskChar = maskChar;
+        this.highlightPrefix = highlightPrefix;
+        this.highlightSuffix = highlightSuffix;
+        this.highlightEscapeHtml = highlightEscapeHtml;
     }
 
     public String toUpperCase(String text, String sessionId) { // Added sessionId parameter
@@ -53,33 +103,157 @@ public class TextService {
         return transformedText;
     }
 
+    /**
+     * Masks the terms of the sensitive-word dictionary in the text.
+     * @param text The text to mask.
+     * @param sessionId The session ID from the client, used for anonymous tracking.
+     * @return The text with each term's non-whitespace chars replaced by the mask char.
+     */
+    public String maskText(String text, String sessionId) {
+        String transformedText = TextUtils.maskTerms(text, dictionaryService.getDictionary(), maskChar);
+        logOperation("mask", text, transformedText, null, sessionId);
+        return transformedText;
+    }
+
+    /**
+     * Marks the terms of the sensitive-word dictionary in the text with the highlight prefix and suffix.
+     * @param text The text to highlight.
+     * @param sessionId The session ID from the client, used for anonymous tracking.
+     * @return The text with each term wrapped in the markers, HTML-escaped unless that is switched off.
+     */
+    public String highlightText(String text, String sessionId) {
+        String transformedText = TextUtils.highlightTerms(text, dictionaryService.getDictionary(), highlightPrefix, highlightSuffix, highlightEscapeHtml);
+        logOperation("highlight", text, transformedText, null, sessionId);
+        return transformedText;
+    }
+
+    /**
+     * Replaces all occurrences of request.find in request.text, literally or as a regular expression.
+     * Compiled patterns are cached, and regex matching is aborted once it exceeds its step or time budget.
+     * @param request The text, search string or pattern, replacement and mode flags.
+     * @param sessionId The session ID from the client, used for anonymous tracking.
+     * @return The text with all occurrences replaced.
+     * @throws IllegalArgumentException If the pattern is too long or invalid, or the text too long for regex mode.
+     * @throws com.textmate.textmatebackend.util.MatchBudgetExceededException If the pattern is too expensive.
+     */
+    public String replaceText(ReplaceRequest request, String sessionId) {
+        String find = request.getFind();
+        String replacement = request.getReplacement() == null ? "" : request.getReplacement();
+        if (find.length() > maxPatternLength) {
+            throw new IllegalArgumentException("Search pattern must not be longer than " + maxPatternLength + " characters.");
+        }
+        if (request.isRegex() && request.getText().length() > regexMaxInputChars) {
+            throw new IllegalArgumentException("Text for a regular expression replace must not be longer than " + regexMaxInputChars + " characters.");
+        }
+        String transformedText;
+        if (!request.isRegex() && !request.isIgnoreCase()) {
+            transformedText = TextUtils.replaceLiteral(request.getText(), find, replacement);
+        } else {
+            int flags = request.isIgnoreCase() ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+            if (!request.isRegex()) {
+                // Case-insensitive literal search goes through the regex engine; quote the replacement too
+                flags |= Pattern.LITERAL;
+                replacement = Matcher.quoteReplacement(replacement);
+            }
+            Pattern pattern;
+            try {
+                pattern = patternCache.get(find, flags);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regular expression: " + e.getDescription() + ".");
+            }
+            try {
+                transformedText = TextUtils.replaceRegex(request.getText(), pattern, replacement, regexMaxSteps, regexTimeoutMillis);
+            } catch (IndexOutOfBoundsException e) {
+                // Unknown group reference in the replacement, e.g. $3 with two groups
+                throw new IllegalArgumentException("Invalid replacement: " + e.getMessage() + ".");
+            }
+        }
+        logOperation("replace", request.getText(), transformedText, null, sessionId);
+        return transformedText;
+    }
+
+    /**
+     * Diffs two texts and logs the operation with the original and revised text.
+     * @param original The old text.
+     * @param revised The new text.
+     * @param granularity The token size of the diff.
+     * @param sessionId The session ID from the client, used for anonymous tracking.
+     * @return The edit script turning original into revised.
+     * @throws IllegalArgumentException If the texts are too large to diff.
+     */
+    public DiffResult diffTexts(String original, String revised, TextDiff.Granularity granularity, String sessionId) {
+        DiffResult result = diff(original, revised, granularity);
+        logOperation("diff", original, revised, null, sessionId);
+        return result;
+    }
+
+    /**
+     * Diffs two texts with the configured size limit and time budget, without logging.
+     * Inputs over the budget get a correct but non-minimal script, flagged as approximate.
+     * @throws IllegalArgumentException If the texts are too large to diff.
+     */
+    public DiffResult diff(String original, String revised, TextDiff.Granularity granularity) {
+        String left = original == null ? "" : original;
+        String right = revised == null ? "" : revised;
+        if ((long) left.length() + right.length() > diffMaxInputChars) {
+            throw new IllegalArgumentException("Texts to compare must not exceed " + diffMaxInputChars + " characters in total.");
+        }
+        return TextDiff.diff(left, right, granularity, diffTimeoutMillis);
+    }
+
     public TextAnalysisResult analyzeText(String text, String sessionId) { // Added sessionId parameter
         TextAnalysisResult result = TextUtils.analyzeText(text);
-        try {
-            // Convert analysis result to JSON string for storage
-            String analysisJson = objectMapper.writeValueAsString(result);
-            logOperation("analyze", text, null, analysisJson, sessionId);
-        } catch (JsonProcessingException e) {
-            logger.error("Error converting analysis result to JSON for logging: {}", e.getMessage());
-        }
+        // Stored as typed columns, so there is nothing to serialize here
+        logOperation("analyze", text, null, result, sessionId);
         return result;
     }
 
+    /**
+     * Logs an operation that was performed outside this service, e.g. by the binary protocol server.
+     * Without an authenticated user on the calling thread, the entry is recorded under the session ID.
+     * @param operationType The operation, as in the REST endpoints.
+     * @param originalText The input text.
+     * @param transformedText The result text, or null for analyses.
+     * @param analysis The analysis result, or null.
+     * @param sessionId The session the operation is recorded under.
+     */
+    public void recordOperation(String operationType, String originalText, String transformedText, TextAnalysisResult analysis, String sessionId) {
+        logOperation(operationType, originalText, transformedText, analysis, sessionId);
+    }
+
+    /**
+     * Logs a streamed transform, which keeps only the sizes and digests of its input and output.
+     * @param operationType The operation, as in the REST endpoints.
+     * @param streamed The sizes and SHA-256 digests of the input and output.
+     * @param sessionId The session ID from the client, used for anonymous tracking.
+     */
+    public void recordStreamedOperation(String operationType, StreamedContent streamed, String sessionId) {
+        OperationLog log = new OperationLog();
+        log.setOperationType(operationType);
+        log.setStreamed(streamed);
+        append(log, sessionId);
+    }
+
     /**
      * Logs an operation, associating it with a user ID if authenticated,
      * or with a session ID if anonymous.
      * @param operationType The type of operation (e.g., "uppercase", "analyze").
      * @param originalText The original text input.
      * @param transformedText The resulting text after transformation (null for analyze).
-     * @param analysisResultJson The analysis result as a JSON string (null for transformations).
+     * @param analysis The analysis result (null for transformations).
      * @param sessionId The session ID from the client, used for anonymous tracking.
      */
-    private void logOperation(String operationType, String originalText, String transformedText, String analysisResultJson, String sessionId) {
+    private void logOperation(String operationType, String originalText, String transformedText, TextAnalysisResult analysis, String sessionId) {
         OperationLog log = new OperationLog();
         log.setOperationType(operationType);
         log.setOriginalText(originalText);
         log.setTransformedText(transformedText);
-        log.setAnalysisResultJson(analysisResultJson);
+        log.setAnalysis(analysis);
+        append(log, sessionId);
+    }
+
+    private void append(OperationLog log, String sessionId) {
+        String operationType = log.getOperationType();
         log.setTimestamp(LocalDateTime.now());
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -94,6 +268,24 @@ public class TextService {
         } else {
             logger.warn("Operation logged without userId or sessionId. OperationType: {}", operationType);
         }
-        operationLogRepository.save(log);
+        if (log.getUser() != null) {
+            // Stored with the entry, so similarity lookups never re-hash the history
+            log.setSimilaritySignature(similarityIndex.sign(log.getOriginalText()));
+        }
+        OperationLogWriteEvent writeEvent = OperationLogWriteEvent.start(operationType, operationLogSink);
+        boolean written = false;
+        try {
+            operationLogSink.append(log);
+            written = true;
+        } finally {
+            OperationLogWriteEvent.finish(writeEvent, written);
+        }
+
+        // Bump only after the save so a reader never sees a new version with old data
+        if (log.getUser() != null) {
+            hotHistoryCache.onAppend(log.getUser().getId(), log);
+            similarityIndex.onAppend(log.getUser().getId(), log);
+            historyVersionTracker.bump(log.getUser().getId());
+        }
     }
 }
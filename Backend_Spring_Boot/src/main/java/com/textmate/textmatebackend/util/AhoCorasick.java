@@ -0,0 +1,278 @@
+package com.textmate.textmatebackend.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable Aho-Corasick automaton over a dictionary of terms, matched case-insensitively.
+ *
+ * The trie is stored in flat arrays: each state's outgoing edges are a sorted slice of
+ * {@code edgeChars}/{@code edgeTargets} (CSR layout, binary searched), and the root has a dense
+ * 64K-entry row since almost every scan step that follows a failure lands there. A state's
+ * {@code match} is the deepest dictionary term ending at it, found via failure links at build time.
+ *
+ * Matches are leftmost-longest and non-overlapping. The text is scanned once from left to right;
+ * after a match only the lookahead past its end, which is shorter than the longest term, is read again.
+ */
+public final class AhoCorasick {
+
+    /** Receives a match as the char range {@code [start, end)} of the scanned text. */
+    @FunctionalInterface
+    public interface MatchConsumer {
+        void accept(int start, int end);
+    }
+
+    private static final char[] FOLD = new char[Character.MAX_VALUE + 1];
+
+    static {
+        // Per-char folding keeps match offsets aligned with the original text
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            FOLD[c] = Character.toLowerCase(Character.toUpperCase((char) c));
+        }
+    }
+
+    private static final AhoCorasick EMPTY = build(List.of(), true);
+
+    private final int[] rootNext;
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    private final int[] depth;
+    private final int[] match;
+    private final int termCount;
+    private final boolean wholeWords;
+
+    private AhoCorasick(int[] rootNext, int[] edgeStart, char[] edgeChars, int[] edgeTargets,
+                        int[] fail, int[] depth, int[] match, int termCount, boolean wholeWords) {
+        this.rootNext = rootNext;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.depth = depth;
+        this.match = match;
+        this.termCount = termCount;
+        this.wholeWords = wholeWords;
+    }
+
+    /**
+     * @return An automaton without terms, which never matches.
+     */
+    public static AhoCorasick empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds the automaton. Terms are trimmed and case-folded; blank terms and duplicates are dropped.
+     * @param terms The dictionary.
+     * @param wholeWords Whether matches must start and end at a word boundary, so "ass" does not match in "class".
+     * @return The automaton.
+     */
+    public static AhoCorasick build(Collection<String> terms, boolean wholeWords) {
+        List<String> folded = new ArrayList<>(terms.size());
+        long chars = 0;
+        for (String term : terms) {
+            String trimmed = term.trim();
+            if (!trimmed.isEmpty()) {
+                String key = fold(trimmed);
+                folded.add(key);
+                chars += key.length();
+            }
+        }
+        if (chars >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Dictionary is too large: " + chars + " chars.");
+        }
+        // In sorted order, an existing child for the next char can only be the most recently added one
+        folded.sort(null);
+
+        int capacity = (int) chars + 1;
+        char[] label = new char[capacity];
+        int[] firstChild = new int[capacity];
+        int[] lastChild = new int[capacity];
+        int[] nextSibling = new int[capacity];
+        int[] depth = new int[capacity];
+        boolean[] terminal = new boolean[capacity];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(lastChild, -1);
+        Arrays.fill(nextSibling, -1);
+        int states = 1;
+        int termCount = 0;
+        String previous = null;
+        for (String term : folded) {
+            if (term.equals(previous)) {
+                continue;
+            }
+            previous = term;
+            termCount++;
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                char c = term.charAt(i);
+                int child = lastChild[state];
+                if (child >= 0 && label[child] == c) {
+                    state = child;
+                    continue;
+                }
+                int created = states++;
+                label[created] = c;
+                depth[created] = depth[state] + 1;
+                if (child < 0) {
+                    firstChild[state] = created;
+                } else {
+                    nextSibling[child] = created;
+                }
+                lastChild[state] = created;
+                state = created;
+            }
+            terminal[state] = true;
+        }
+
+        // Flatten the sibling lists into CSR edges; siblings are already in char order
+        int[] edgeStart = new int[states + 1];
+        char[] edgeChars = new char[states - 1];
+        int[] edgeTargets = new int[states - 1];
+        int[] rootNext = new int[Character.MAX_VALUE + 1];
+        int edges = 0;
+        for (int state = 0; state < states; state++) {
+            edgeStart[state] = edges;
+            for (int child = firstChild[state]; child >= 0; child = nextSibling[child]) {
+                edgeChars[edges] = label[child];
+                edgeTargets[edges] = child;
+                edges++;
+                if (state == 0) {
+                    rootNext[label[child]] = child;
+                }
+            }
+        }
+        edgeStart[states] = edges;
+
+        AhoCorasick automaton = new AhoCorasick(rootNext, edgeStart, edgeChars, edgeTargets,
+                new int[states], Arrays.copyOf(depth, states), new int[states], termCount, wholeWords);
+        automaton.linkFailures(terminal);
+        return automaton;
+    }
+
+    // Breadth-first, so every state's failure target is shallower and already linked
+    private void linkFailures(boolean[] terminal) {
+        int[] queue = new int[fail.length];
+        int head = 0;
+        int tail = 0;
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            int child = edgeTargets[e];
+            fail[child] = 0;
+            match[child] = terminal[child] ? child : 0;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                int child = edgeTargets[e];
+                int target = next(fail[state], edgeChars[e]);
+                fail[child] = target;
+                match[child] = terminal[child] ? child : match[target];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private int next(int state, char c) {
+        while (state != 0) {
+            int low = edgeStart[state];
+            int high = edgeStart[state + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char label = edgeChars[mid];
+                if (label < c) {
+                    low = mid + 1;
+                } else if (label > c) {
+                    high = mid - 1;
+                } else {
+                    return edgeTargets[mid];
+                }
+            }
+            state = fail[state];
+        }
+        return rootNext[c];
+    }
+
+    /**
+     * Reports the leftmost-longest, non-overlapping matches in text order.
+     * @param text The text to scan.
+     * @param consumer Receives each match.
+     * @return The number of matches.
+     */
+    public int forEachMatch(String text, MatchConsumer consumer) {
+        if (termCount == 0) {
+            return 0;
+        }
+        int count = 0;
+        int from = 0;
+        long found;
+        while ((found = findNext(text, from)) >= 0) {
+            int start = (int) (found >>> 32);
+            int end = (int) found;
+            consumer.accept(start, end);
+            count++;
+            from = end;
+        }
+        return count;
+    }
+
+    /**
+     * @return The next match at or after from as {@code (start << 32) | end}, or -1.
+     */
+    private long findNext(String text, int from) {
+        int length = text.length();
+        int state = 0;
+        int bestStart = -1;
+        int bestEnd = -1;
+        for (int i = from; i < length; i++) {
+            state = next(state, FOLD[text.charAt(i)]);
+            // Terms ending here, longest (so leftmost) first; stop once they start after the best match
+            for (int m = match[state]; m != 0; m = match[fail[m]]) {
+                int start = i + 1 - depth[m];
+                if (bestStart >= 0 && start > bestStart) {
+                    break;
+                }
+                if (!wholeWords || isWordBoundary(text, start, i + 1)) {
+                    // An equal start seen at a later position is a longer match
+                    bestStart = start;
+                    bestEnd = i + 1;
+                    break;
+                }
+            }
+            // No later match can start at or before the best one once the current prefix begins after it
+            if (bestStart >= 0 && i + 1 - depth[state] > bestStart) {
+                break;
+            }
+        }
+        return bestStart < 0 ? -1 : ((long) bestStart << 32) | bestEnd;
+    }
+
+    private static boolean isWordBoundary(String text, int start, int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+    }
+
+    private static String fold(String term) {
+        char[] chars = new char[term.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = FOLD[term.charAt(i)];
+        }
+        return new String(chars);
+    }
+
+    public int getTermCount() {
+        return termCount;
+    }
+
+    public int getStateCount() {
+        return fail.length;
+    }
+
+    public boolean isWholeWords() {
+        return wholeWords;
+    }
+}
@@ -0,0 +1,52 @@
+package com.textmate.textmatebackend.util;
+
+/**
+ * CharSequence view of a string that counts {@link #charAt(int)} calls and aborts the regex
+ * engine with a {@link MatchBudgetExceededException} once a step or time budget is spent.
+ * {@code java.util.regex} reads its input only through {@code charAt}, so backtracking shows up
+ * as steps. The clock is read every {@value #CLOCK_CHECK_INTERVAL} steps to keep the overhead low.
+ */
+public class BudgetedCharSequence implements CharSequence {
+
+    private static final int CLOCK_CHECK_INTERVAL = 4096;
+
+    private final String text;
+    private final long maxSteps;
+    private final long deadlineNanos;
+    private long steps;
+
+    public BudgetedCharSequence(String text, long maxSteps, long timeoutMillis) {
+        this.text = text;
+        this.maxSteps = maxSteps;
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++steps % CLOCK_CHECK_INTERVAL == 0) {
+            if (steps > maxSteps) {
+                throw new MatchBudgetExceededException("Pattern exceeded the budget of " + maxSteps + " steps.");
+            }
+            if (System.nanoTime() - deadlineNanos > 0) {
+                throw new MatchBudgetExceededException("Pattern exceeded the time budget.");
+            }
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        // Only used to extract matched groups, which is not backtracking work
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,12 @@
+package com.textmate.textmatebackend.util;
+
+/**
+ * Thrown when a regular expression needs more steps or time than its budget allows,
+ * typically because of catastrophic backtracking.
+ */
+public class MatchBudgetExceededException extends RuntimeException {
+
+    public MatchBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,188 @@
+package com.textmate.textmatebackend.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * MinHash signatures over the character shingles of a text, for estimating the Jaccard similarity
+ * of two texts' shingle sets without comparing the texts.
+ *
+ * Texts are normalized first (lower case, whitespace runs collapsed to one space, trimmed), so
+ * re-wrapped or re-cased copies of a document get the same signature. Instead of one hash function
+ * per signature slot, each shingle is hashed once and only competes for the minimum of the slot its
+ * hash falls into (one-permutation hashing); slots that receive no shingle borrow the value of
+ * another slot chosen by a fixed pseudo-random sequence (optimal densification). Signing is
+ * therefore linear in the text length whatever the signature length, and the fraction of equal
+ * slots of two signatures is still an unbiased estimate of the Jaccard similarity.
+ *
+ * Instances are immutable and thread-safe; signatures are only comparable between instances with
+ * the same parameters.
+ */
+public final class MinHash {
+
+    // Multiplier of the polynomial rolling hash over the chars of a shingle
+    private static final long ROLLING_BASE = 0x100000001B3L;
+
+    private final int slots;
+    private final int shingleChars;
+    private final long rollingBaseToShingleChars;
+
+    /**
+     * @param slots The signature length.
+     * @param shingleChars The number of chars per shingle, after normalization.
+     */
+    public MinHash(int slots, int shingleChars) {
+        if (slots < 1 || shingleChars < 1) {
+            throw new IllegalArgumentException("Signature slots and shingle length must be positive.");
+        }
+        this.slots = slots;
+        this.shingleChars = shingleChars;
+        long power = 1;
+        for (int i = 0; i < shingleChars; i++) {
+            power *= ROLLING_BASE;
+        }
+        this.rollingBaseToShingleChars = power;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public int getShingleChars() {
+        return shingleChars;
+    }
+
+    /**
+     * Computes the signature of a text. Texts shorter than one shingle form a single shingle.
+     * @param text The text to sign.
+     * @return The signature, or null if the text is empty after normalization.
+     */
+    public int[] signature(String text) {
+        char[] chars = normalize(text);
+        int length = chars.length;
+        if (length == 0) {
+            return null;
+        }
+        // Low 32 bits of the smallest shingle hash per slot; anything above 0xFFFFFFFF means empty
+        long[] minima = new long[slots];
+        Arrays.fill(minima, Long.MAX_VALUE);
+        int width = Math.min(shingleChars, length);
+        long rolling = 0;
+        for (int i = 0; i < width; i++) {
+            rolling = rolling * ROLLING_BASE + chars[i];
+        }
+        offer(minima, rolling);
+        for (int i = width; i < length; i++) {
+            rolling = rolling * ROLLING_BASE + chars[i] - chars[i - width] * rollingBaseToShingleChars;
+            offer(minima, rolling);
+        }
+
+        int[] signature = new int[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            long value = minima[slot];
+            // Every text has at least one shingle, so the probing terminates
+            for (int attempt = 1; value == Long.MAX_VALUE; attempt++) {
+                value = minima[slotOf(mix(((long) slot << 32) | attempt))];
+            }
+            signature[slot] = (int) value;
+        }
+        return signature;
+    }
+
+    /**
+     * Serializes a signature for storage, prefixed with the shingle length so that {@link #decode(byte[])}
+     * can tell signatures made with other parameters apart.
+     * @param signature A signature computed by this instance.
+     * @return The encoded signature, 4 bytes per slot plus 4.
+     */
+    public byte[] encode(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * (signature.length + 1));
+        buffer.putInt(shingleChars);
+        for (int value : signature) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads a signature written by {@link #encode(int[])}.
+     * @param bytes The encoded signature.
+     * @return The signature, or null if it was made with another signature length or shingle length.
+     */
+    public int[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length != Integer.BYTES * (slots + 1)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != shingleChars) {
+            return null;
+        }
+        int[] signature = new int[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            signature[slot] = buffer.getInt();
+        }
+        return signature;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the shingle sets behind two signatures.
+     * @return The fraction of equal slots, between 0 and 1.
+     */
+    public static double similarity(int[] a, int[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Signatures of different lengths are not comparable.");
+        }
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    private void offer(long[] minima, long shingleHash) {
+        long hash = mix(shingleHash);
+        int slot = slotOf(hash);
+        long value = hash & 0xFFFFFFFFL;
+        if (value < minima[slot]) {
+            minima[slot] = value;
+        }
+    }
+
+    // Maps the high 32 bits of a hash onto [0, slots) without a division
+    private int slotOf(long hash) {
+        return (int) (((hash >>> 32) * slots) >>> 32);
+    }
+
+    private static char[] normalize(String text) {
+        char[] chars = new char[text.length()];
+        int length = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = length > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                chars[length++] = ' ';
+                pendingSpace = false;
+            }
+            chars[length++] = Character.toLowerCase(c);
+        }
+        return length == chars.length ? chars : Arrays.copyOf(chars, length);
+    }
+
+    /**
+     * The 64-bit finalizer of MurmurHash3; spreads every input bit over the whole result.
+     */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
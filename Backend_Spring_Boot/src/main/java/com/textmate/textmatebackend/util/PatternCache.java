@@ -0,0 +1,45 @@
+package com.textmate.textmatebackend.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of compiled patterns, so repeated replace requests skip {@link Pattern#compile}.
+ * Patterns are compiled outside the lock; two threads missing on the same key may both compile it.
+ */
+public class PatternCache {
+
+    private final Map<Key, Pattern> patterns;
+
+    public PatternCache(int maxEntries) {
+        this.patterns = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The compiled pattern for the given expression and flags.
+     * @throws java.util.regex.PatternSyntaxException If the expression is invalid.
+     */
+    public Pattern get(String regex, int flags) {
+        Key key = new Key(regex, flags);
+        synchronized (patterns) {
+            Pattern cached = patterns.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Pattern compiled = Pattern.compile(regex, flags);
+        synchronized (patterns) {
+            patterns.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private record Key(String regex, int flags) {
+    }
+}
@@ -0,0 +1,314 @@
+package com.textmate.textmatebackend.util;
+
+import com.textmate.textmatebackend.model.DiffResult;
+import com.textmate.textmatebackend.monitoring.TextOperationEvent;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Line-, word- or character-level diff using Myers' O(ND) algorithm in its linear-space form:
+ * each step finds the middle snake of the shortest edit script and recurses on both halves, so
+ * memory stays O(N + M). Tokens are interned to ints, so comparisons are int compares.
+ *
+ * Once the deadline passes, the remaining unmatched ranges are reported as a delete plus an
+ * insert; the script is still correct, just not minimal, and the result is marked approximate.
+ *
+ * The edit script uses the diff-match-patch delta format: tab-separated {@code =n} (keep n chars),
+ * {@code -n} (delete n chars) and {@code +text} (insert URI-encoded text). Counts are UTF-16 chars.
+ */
+public final class TextDiff {
+
+    public enum Granularity {
+        LINE, WORD, CHAR;
+
+        public static Granularity parse(String value) {
+            if (value == null || value.isBlank()) {
+                return WORD;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Granularity must be one of line, word or char.");
+            }
+        }
+    }
+
+    private static final byte EQUAL = 0;
+    private static final byte DELETE = 1;
+    private static final byte INSERT = 2;
+
+    private static final long TIMED_OUT = -1;
+    private static final long NO_COMMON_TOKENS = -2;
+
+    private final int[] a;
+    private final int[] b;
+    private final long deadlineNanos;
+    private boolean approximate;
+
+    // Edit script over tokens, adjacent edits of the same type merged
+    private byte[] opTypes = new byte[16];
+    private int[] opCounts = new int[16];
+    private int opCount;
+
+    private TextDiff(int[] a, int[] b, long deadlineNanos) {
+        this.a = a;
+        this.b = b;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Computes the edit script turning original into revised.
+     * @param original The old text.
+     * @param revised The new text.
+     * @param granularity The token size.
+     * @param timeoutMillis Time after which the remaining work is approximated.
+     * @return The delta and the number of kept, deleted and inserted chars.
+     */
+    public static DiffResult diff(String original, String revised, Granularity granularity, long timeoutMillis) {
+        TextOperationEvent event = TextOperationEvent.start("diff", original);
+        int[] originalBounds = tokenize(original, granularity);
+        int[] revisedBounds = tokenize(revised, granularity);
+        Map<String, Integer> ids = new HashMap<>();
+        TextDiff diff = new TextDiff(intern(original, originalBounds, granularity, ids),
+                intern(revised, revisedBounds, granularity, ids), System.nanoTime() + timeoutMillis * 1_000_000L);
+        diff.compare(0, diff.a.length, 0, diff.b.length);
+        DiffResult result = diff.toResult(originalBounds, revised, revisedBounds, granularity);
+        TextOperationEvent.finish(event);
+        return result;
+    }
+
+    /**
+     * @return The token boundaries: token i spans chars {@code bounds[i]} to {@code bounds[i + 1]}.
+     */
+    static int[] tokenize(String text, Granularity granularity) {
+        int length = text.length();
+        int[] bounds = new int[16];
+        int count = 0;
+        int start = 0;
+        while (start < length) {
+            if (count == bounds.length - 1) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[count++] = start;
+            switch (granularity) {
+                case LINE -> {
+                    int newline = text.indexOf('\n', start);
+                    start = newline < 0 ? length : newline + 1;
+                }
+                case WORD -> {
+                    // Runs of letters/digits, runs of whitespace, or a single other code point
+                    int first = text.codePointAt(start);
+                    start += Character.charCount(first);
+                    if (Character.isLetterOrDigit(first) || Character.isWhitespace(first)) {
+                        boolean word = Character.isLetterOrDigit(first);
+                        while (start < length) {
+                            int next = text.codePointAt(start);
+                            if (word ? !Character.isLetterOrDigit(next) : !Character.isWhitespace(next)) {
+                                break;
+                            }
+                            start += Character.charCount(next);
+                        }
+                    }
+                }
+                default -> start += Character.charCount(text.codePointAt(start));
+            }
+        }
+        bounds[count] = length;
+        return Arrays.copyOf(bounds, count + 1);
+    }
+
+    private static int[] intern(String text, int[] bounds, Granularity granularity, Map<String, Integer> ids) {
+        int[] interned = new int[bounds.length - 1];
+        for (int i = 0; i < interned.length; i++) {
+            // A code point is its own ID; longer tokens are numbered above the code point range
+            interned[i] = granularity == Granularity.CHAR
+                    ? text.codePointAt(bounds[i])
+                    : ids.computeIfAbsent(text.substring(bounds[i], bounds[i + 1]), t -> Character.MAX_CODE_POINT + 1 + ids.size());
+        }
+        return interned;
+    }
+
+    private void compare(int aStart, int aEnd, int bStart, int bEnd) {
+        int prefix = 0;
+        while (aStart + prefix < aEnd && bStart + prefix < bEnd && a[aStart + prefix] == b[bStart + prefix]) {
+            prefix++;
+        }
+        emit(EQUAL, prefix);
+        aStart += prefix;
+        bStart += prefix;
+        int suffix = 0;
+        while (aStart < aEnd - suffix && bStart < bEnd - suffix && a[aEnd - 1 - suffix] == b[bEnd - 1 - suffix]) {
+            suffix++;
+        }
+        aEnd -= suffix;
+        bEnd -= suffix;
+
+        if (aStart == aEnd) {
+            emit(INSERT, bEnd - bStart);
+        } else if (bStart == bEnd) {
+            emit(DELETE, aEnd - aStart);
+        } else {
+            long split = middleSnake(aStart, aEnd, bStart, bEnd);
+            if (split < 0) {
+                approximate |= split == TIMED_OUT;
+                emit(DELETE, aEnd - aStart);
+                emit(INSERT, bEnd - bStart);
+            } else {
+                int x = (int) (split >>> 32);
+                int y = (int) split;
+                compare(aStart, x, bStart, y);
+                compare(x, aEnd, y, bEnd);
+            }
+        }
+        emit(EQUAL, suffix);
+    }
+
+    /**
+     * Runs the forward and reverse searches until their paths overlap and returns the overlap
+     * point as {@code (x << 32) | y} in absolute token indexes, {@link #TIMED_OUT} after the
+     * deadline, or {@link #NO_COMMON_TOKENS} if replacing the whole range is the shortest script.
+     * Both ranges are non-empty and start and end with different tokens.
+     */
+    private long middleSnake(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int vLength = 2 * maxD + 2;
+        int[] forward = new int[vLength];
+        int[] reverse = new int[vLength];
+        Arrays.fill(forward, -1);
+        Arrays.fill(reverse, -1);
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+        int delta = n - m;
+        boolean checkOnForward = (delta & 1) != 0;
+        // Diagonals that ran off the edge of the grid are skipped from then on
+        int k1Start = 0, k1End = 0, k2Start = 0, k2End = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            if (System.nanoTime() - deadlineNanos > 0) {
+                return TIMED_OUT;
+            }
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1 = k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])
+                        ? forward[k1Offset + 1]
+                        : forward[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && a[aStart + x1] == b[bStart + y1]) {
+                    x1++;
+                    y1++;
+                }
+                forward[k1Offset] = x1;
+                if (x1 > n) {
+                    k1End += 2;
+                } else if (y1 > m) {
+                    k1Start += 2;
+                } else if (checkOnForward) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < vLength && reverse[k2Offset] != -1 && x1 >= n - reverse[k2Offset]) {
+                        return ((long) (aStart + x1) << 32) | (bStart + y1);
+                    }
+                }
+            }
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2 = k2 == -d || (k2 != d && reverse[k2Offset - 1] < reverse[k2Offset + 1])
+                        ? reverse[k2Offset + 1]
+                        : reverse[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && a[aEnd - 1 - x2] == b[bEnd - 1 - y2]) {
+                    x2++;
+                    y2++;
+                }
+                reverse[k2Offset] = x2;
+                if (x2 > n) {
+                    k2End += 2;
+                } else if (y2 > m) {
+                    k2Start += 2;
+                } else if (!checkOnForward) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < vLength && forward[k1Offset] != -1) {
+                        int x1 = forward[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) {
+                            return ((long) (aStart + x1) << 32) | (bStart + y1);
+                        }
+                    }
+                }
+            }
+        }
+        return NO_COMMON_TOKENS;
+    }
+
+    private void emit(byte type, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (opCount > 0 && opTypes[opCount - 1] == type) {
+            opCounts[opCount - 1] += count;
+            return;
+        }
+        if (opCount == opTypes.length) {
+            opTypes = Arrays.copyOf(opTypes, opCount * 2);
+            opCounts = Arrays.copyOf(opCounts, opCount * 2);
+        }
+        opTypes[opCount] = type;
+        opCounts[opCount] = count;
+        opCount++;
+    }
+
+    private DiffResult toResult(int[] originalBounds, String revised, int[] revisedBounds, Granularity granularity) {
+        StringBuilder delta = new StringBuilder();
+        long unchanged = 0, deleted = 0, inserted = 0;
+        int aIndex = 0, bIndex = 0;
+        for (int i = 0; i < opCount; i++) {
+            int count = opCounts[i];
+            if (delta.length() > 0) {
+                delta.append('\t');
+            }
+            if (opTypes[i] == INSERT) {
+                String text = revised.substring(revisedBounds[bIndex], revisedBounds[bIndex + count]);
+                inserted += text.length();
+                delta.append('+').append(encode(text));
+                bIndex += count;
+            } else {
+                int chars = originalBounds[aIndex + count] - originalBounds[aIndex];
+                aIndex += count;
+                if (opTypes[i] == EQUAL) {
+                    unchanged += chars;
+                    bIndex += count;
+                    delta.append('=').append(chars);
+                } else {
+                    deleted += chars;
+                    delta.append('-').append(chars);
+                }
+            }
+        }
+        DiffResult result = new DiffResult();
+        result.setGranularity(granularity.name().toLowerCase(Locale.ROOT));
+        result.setDelta(delta.toString());
+        result.setUnchangedChars(unchanged);
+        result.setDeletedChars(deleted);
+        result.setInsertedChars(inserted);
+        result.setApproximate(approximate);
+        return result;
+    }
+
+    // Same escaping as diff-match-patch (JavaScript encodeURI), so its clients can apply the delta
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8).replace('+', ' ')
+                .replace("%21", "!").replace("%7E", "~").replace("%27", "'")
+                .replace("%28", "(").replace("%29", ")").replace("%3B", ";")
+                .replace("%2F", "/").replace("%3F", "?").replace("%3A", ":")
+                .replace("%40", "@").replace("%26", "&").replace("%3D", "=")
+                .replace("%2B", "+").replace("%24", "$").replace("%2C", ",")
+                .replace("%23", "#");
+    }
+}
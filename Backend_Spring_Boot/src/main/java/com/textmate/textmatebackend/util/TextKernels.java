@@ -0,0 +1,68 @@
+package com.textmate.textmatebackend.util;
+
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * The per-char work behind the case conversions and {@code analyzeText}. {@link #scalar()} is the
+ * reference implementation; with {@code -Dtextmate.simd.enabled=true} and a build of the {@code simd}
+ * profile, {@link #active()} is the JDK Vector API implementation instead, which must produce
+ * identical results for every input.
+ */
+public interface TextKernels {
+
+    String SIMD_PROPERTY = "textmate.simd.enabled";
+
+    String toUpperCase(String text);
+
+    String toLowerCase(String text);
+
+    TextAnalysisResult analyzeText(String text);
+
+    /**
+     * @return The kernels used by {@link TextUtils}.
+     */
+    static TextKernels active() {
+        return Holder.ACTIVE;
+    }
+
+    static TextKernels scalar() {
+        return ScalarTextKernels.INSTANCE;
+    }
+
+    /**
+     * @return The Vector API kernels, if they were compiled in and the incubator module is present.
+     */
+    static Optional<TextKernels> vector() {
+        return Optional.ofNullable(Holder.VECTOR);
+    }
+
+    final class Holder {
+
+        private static final String VECTOR_CLASS = "com.textmate.textmatebackend.util.VectorTextKernels";
+
+        private static final TextKernels VECTOR = loadVector();
+        private static final TextKernels ACTIVE =
+                Boolean.getBoolean(SIMD_PROPERTY) && VECTOR != null ? VECTOR : ScalarTextKernels.INSTANCE;
+
+        private Holder() {
+        }
+
+        private static TextKernels loadVector() {
+            try {
+                return (TextKernels) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+            } catch (ClassNotFoundException e) {
+                // Built without -Psimd
+                return null;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Most likely started without --add-modules jdk.incubator.vector
+                if (Boolean.getBoolean(SIMD_PROPERTY)) {
+                    LoggerFactory.getLogger(TextKernels.class).warn("Vector API kernels unavailable, using scalar kernels: {}", e.toString());
+                }
+                return null;
+            }
+        }
+    }
+}
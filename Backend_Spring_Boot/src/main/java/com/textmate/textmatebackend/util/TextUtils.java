@@ -1,6 +1,7 @@
 package com.textmate.textmatebackend.util;
 
 import com.textmate.textmatebackend.model.TextAnalysisResult;
+import com.textmate.textmatebackend.monitoring.TextOperationEvent;
 
 import java.util.Arrays;
 import java.util.regex.Matcher;
@@ -9,25 +10,28 @@ import java.util.stream.Collectors;
 
 public class TextUtils {
 
-    // Regex for splitting into sentences. This is a basic one and might need
-    // to be more sophisticated for complex edge cases (e.g., abbreviations).
-    private static final Pattern SENTENCE_SPLIT_PATTERN = Pattern.compile("[.!?]+\\s*|[\\r\\n]+");
-
     public static String toUpperCase(String text) {
         if (text == null) return null;
-        return text.toUpperCase();
+        TextOperationEvent event = TextOperationEvent.start("uppercase", text);
+        String result = TextKernels.active().toUpperCase(text);
+        TextOperationEvent.finish(event);
+        return result;
     }
 
     public static String toLowerCase(String text) {
         if (text == null) return null;
-        return text.toLowerCase();
+        TextOperationEvent event = TextOperationEvent.start("lowercase", text);
+        String result = TextKernels.active().toLowerCase(text);
+        TextOperationEvent.finish(event);
+        return result;
     }
 
     public static String toTitleCase(String text) {
         if (text == null || text.isEmpty()) {
             return "";
         }
-        return Arrays.stream(text.split("\\s+"))
+        TextOperationEvent event = TextOperationEvent.start("titlecase", text);
+        String result = Arrays.stream(text.split("\\s+"))
                 .map(word -> {
                     if (word.isEmpty()) {
                         return "";
@@ -35,46 +39,137 @@ public class TextUtils {
                     return Character.toTitleCase(word.charAt(0)) + word.substring(1).toLowerCase();
                 })
                 .collect(Collectors.joining(" "));
+        TextOperationEvent.finish(event);
+        return result;
     }
 
     public static String reverseText(String text) {
         if (text == null) return null;
-        return new StringBuilder(text).reverse().toString();
+        TextOperationEvent event = TextOperationEvent.start("reverse", text);
+        String result = new StringBuilder(text).reverse().toString();
+        TextOperationEvent.finish(event);
+        return result;
     }
 
-    public static TextAnalysisResult analyzeText(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return new TextAnalysisResult(0, 0, 0, 0);
+    /**
+     * Replaces every occurrence of a literal string, scanning with {@link String#indexOf(String, int)}.
+     * The replacement is inserted as-is.
+     */
+    public static String replaceLiteral(String text, String find, String replacement) {
+        if (text == null) return null;
+        TextOperationEvent event = TextOperationEvent.start("replace", text);
+        int match = text.indexOf(find);
+        if (match < 0) {
+            TextOperationEvent.finish(event);
+            return text;
         }
+        StringBuilder result = new StringBuilder(text.length() + Math.max(0, replacement.length() - find.length()) * 4);
+        int from = 0;
+        while (match >= 0) {
+            result.append(text, from, match).append(replacement);
+            from = match + find.length();
+            match = text.indexOf(find, from);
+        }
+        result.append(text, from, text.length());
+        TextOperationEvent.finish(event);
+        return result.toString();
+    }
 
-        // Word Count
-        String[] words = text.trim().split("\\s+");
-        int wordCount = (words.length == 1 && words[0].isEmpty()) ? 0 : words.length;
-
-        // Character Count (excluding spaces)
-        int charCount = text.replace(" ", "").length();
-
-        // Sentence Count
-        int sentenceCount = 0;
-        Matcher matcher = SENTENCE_SPLIT_PATTERN.matcher(text.trim());
-        while (matcher.find()) {
-            // Ensure the match is not just empty string or whitespace
-            if (matcher.group().trim().length() > 0 || !matcher.hitEnd()) {
-                sentenceCount++;
+    /**
+     * Replaces every match of a pattern, with the input wrapped in a {@link BudgetedCharSequence}.
+     * The replacement may refer to groups as in {@link Matcher#appendReplacement(StringBuilder, String)}.
+     * @throws MatchBudgetExceededException If matching needs more than maxSteps char reads or timeoutMillis,
+     *         or recurses deeper than the thread's stack allows.
+     */
+    public static String replaceRegex(String text, Pattern pattern, String replacement, long maxSteps, long timeoutMillis) {
+        if (text == null) return null;
+        TextOperationEvent event = TextOperationEvent.start("replace", text);
+        try {
+            Matcher matcher = pattern.matcher(new BudgetedCharSequence(text, maxSteps, timeoutMillis));
+            StringBuilder result = new StringBuilder(text.length());
+            try {
+                while (matcher.find()) {
+                    matcher.appendReplacement(result, replacement);
+                }
+            } catch (StackOverflowError e) {
+                // Backtracking into nested groups recurses once per repetition, e.g. (a|aa)+ over a long run of a
+                throw new MatchBudgetExceededException("Pattern recursed too deeply on this text.");
             }
+            matcher.appendTail(result);
+            return result.toString();
+        } finally {
+            // Also recorded when the budget is exceeded, so runaway patterns show up in recordings
+            TextOperationEvent.finish(event);
         }
+    }
 
-        // If no punctuation/newlines, and there's text, it's at least one sentence.
-        if (sentenceCount == 0 && text.trim().length() > 0) {
-            sentenceCount = 1;
-        }
+    /**
+     * Masks every dictionary term found in the text, one mask char per non-whitespace char,
+     * so the text keeps its length and layout.
+     */
+    public static String maskTerms(String text, AhoCorasick dictionary, char maskChar) {
+        if (text == null) return null;
+        TextOperationEvent event = TextOperationEvent.start("mask", text);
+        char[] chars = text.toCharArray();
+        int matches = dictionary.forEachMatch(text, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                if (!Character.isWhitespace(chars[i])) {
+                    chars[i] = maskChar;
+                }
+            }
+        });
+        String result = matches == 0 ? text : new String(chars);
+        TextOperationEvent.finish(event);
+        return result;
+    }
+
+    /**
+     * Wraps every dictionary term found in the text in the given markers, e.g. {@code <mark>} and {@code </mark>}.
+     * With escapeHtml, the text itself is HTML-escaped, so the result can be rendered as HTML with only the
+     * markers taking effect; without it, the text is copied as-is and the result must be treated as plain text.
+     */
+    public static String highlightTerms(String text, AhoCorasick dictionary, String prefix, String suffix, boolean escapeHtml) {
+        if (text == null) return null;
+        TextOperationEvent event = TextOperationEvent.start("highlight", text);
+        StringBuilder result = new StringBuilder(text.length() + 64);
+        int[] copied = {0};
+        dictionary.forEachMatch(text, (start, end) -> {
+            appendText(result, text, copied[0], start, escapeHtml);
+            result.append(prefix);
+            appendText(result, text, start, end, escapeHtml);
+            result.append(suffix);
+            copied[0] = end;
+        });
+        appendText(result, text, copied[0], text.length(), escapeHtml);
+        TextOperationEvent.finish(event);
+        return result.toString();
+    }
 
-        // Estimated Read Time (assuming 200 words per minute)
-        int readTime = (int) Math.ceil(wordCount / 200.0);
-        if (readTime < 1 && wordCount > 0) { // Ensure minimum 1 min if there's text
-            readTime = 1;
+    private static void appendText(StringBuilder result, String text, int start, int end, boolean escapeHtml) {
+        if (!escapeHtml) {
+            result.append(text, start, end);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> result.append("&amp;");
+                case '<' -> result.append("&lt;");
+                case '>' -> result.append("&gt;");
+                case '"' -> result.append("&quot;");
+                case '\'' -> result.append("&#39;");
+                default -> result.append(c);
+            }
         }
+    }
 
-        return new TextAnalysisResult(wordCount, charCount, sentenceCount, readTime);
+    public static TextAnalysisResult analyzeText(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new TextAnalysisResult(0, 0, 0, 0);
+        }
+        TextOperationEvent event = TextOperationEvent.start("analyze", text);
+        TextAnalysisResult result = TextKernels.active().analyzeText(text);
+        TextOperationEvent.finish(event);
+        return result;
     }
 }
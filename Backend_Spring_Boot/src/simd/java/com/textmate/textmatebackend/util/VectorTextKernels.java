@@ -0,0 +1,223 @@
+package com.textmate.textmatebackend.util;
+
+import com.textmate.textmatebackend.model.TextAnalysisResult;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Locale;
+
+/**
+ * {@link TextKernels} on the JDK Vector API, working on the UTF-16 chars as 16-bit lanes.
+ *
+ * Case conversion rewrites all-ASCII blocks with masked lane arithmetic; any block containing a
+ * non-ASCII char goes through {@link String#toUpperCase()}/{@link String#toLowerCase()}, which is
+ * identical because, outside the Turkish, Azerbaijani and Lithuanian locales, the only
+ * context-dependent mapping is the lowercase final sigma; texts with a capital sigma, and texts in
+ * those locales, are converted by the scalar kernels as a whole.
+ *
+ * Counting reproduces the scalar {@code analyzeText} exactly: {@code \s} is {@code [ \t\n\x0B\f\r]},
+ * words are runs of non-{@code \s} chars inside the trimmed text, and sentence breaks are the
+ * matches of {@code [.!?]+\s*|[\r\n]+}, i.e. the starts of terminator runs plus the starts of line
+ * break runs that do not belong to the whitespace tail of a terminator run.
+ */
+final class VectorTextKernels implements TextKernels {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private static final char CAPITAL_SIGMA = 'Σ';
+
+    @Override
+    public String toUpperCase(String text) {
+        if (hasSpecialCasing(Locale.getDefault())) {
+            return text.toUpperCase();
+        }
+        return convert(text, true);
+    }
+
+    @Override
+    public String toLowerCase(String text) {
+        if (hasSpecialCasing(Locale.getDefault())) {
+            return text.toLowerCase();
+        }
+        return convert(text, false);
+    }
+
+    private static boolean hasSpecialCasing(Locale locale) {
+        String language = locale.getLanguage();
+        return language.equals("tr") || language.equals("az") || language.equals("lt");
+    }
+
+    private static String convert(String text, boolean upper) {
+        char[] chars = text.toCharArray();
+        int length = chars.length;
+        short from = (short) (upper ? 'a' : 'A');
+        short to = (short) (upper ? 'z' : 'Z');
+        int delta = upper ? -32 : 32;
+        int i = 0;
+        while (i < length) {
+            if (i + LANES <= length) {
+                ShortVector block = ShortVector.fromCharArray(SPECIES, chars, i);
+                if (!block.compare(VectorOperators.UNSIGNED_GT, (short) 0x7F).anyTrue()) {
+                    VectorMask<Short> letters = block.compare(VectorOperators.GE, from).and(block.compare(VectorOperators.LE, to));
+                    block.lanewise(VectorOperators.ADD, (short) delta, letters).intoCharArray(chars, i);
+                    i += LANES;
+                    continue;
+                }
+            }
+            // Non-ASCII blocks up to the next all-ASCII block, or the tail; never split a surrogate pair
+            int end = Math.min(i + LANES, length);
+            while (end + LANES <= length && ShortVector.fromCharArray(SPECIES, chars, end).compare(VectorOperators.UNSIGNED_GT, (short) 0x7F).anyTrue()) {
+                end += LANES;
+            }
+            if (end < length && Character.isHighSurrogate(chars[end - 1])) {
+                end++;
+            }
+            String segment = new String(chars, i, end - i);
+            if (!upper && segment.indexOf(CAPITAL_SIGMA) >= 0) {
+                return text.toLowerCase();
+            }
+            String converted = upper ? segment.toUpperCase() : segment.toLowerCase();
+            if (converted.length() != segment.length()) {
+                // e.g. ß -> SS; the rest no longer fits in place
+                return new String(chars, 0, i) + (upper ? text.substring(i).toUpperCase() : text.substring(i).toLowerCase());
+            }
+            converted.getChars(0, converted.length(), chars, i);
+            i = end;
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public TextAnalysisResult analyzeText(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new TextAnalysisResult(0, 0, 0, 0);
+        }
+        char[] chars = text.toCharArray();
+        // Same bounds as String.trim(): chars up to U+0020 are stripped from both ends
+        int start = 0;
+        int end = chars.length;
+        while (chars[start] <= ' ') {
+            start++;
+        }
+        while (chars[end - 1] <= ' ') {
+            end--;
+        }
+
+        int wordCount = countWords(chars, start, end);
+        int charCount = chars.length - countSpaces(chars);
+        int sentenceCount = countSentenceBreaks(chars, start, end);
+        if (sentenceCount == 0) {
+            sentenceCount = 1;
+        }
+        int readTime = (int) Math.ceil(wordCount / 200.0);
+        if (readTime < 1 && wordCount > 0) {
+            readTime = 1;
+        }
+        return new TextAnalysisResult(wordCount, charCount, sentenceCount, readTime);
+    }
+
+    private static int countSpaces(char[] chars) {
+        int count = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(chars.length); i < bound; i += LANES) {
+            count += ShortVector.fromCharArray(SPECIES, chars, i).compare(VectorOperators.EQ, (short) ' ').trueCount();
+        }
+        for (; i < chars.length; i++) {
+            if (chars[i] == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Non-whitespace chars whose predecessor is whitespace; the first char of the trimmed text always starts a word
+    private static int countWords(char[] chars, int start, int end) {
+        int count = 1;
+        int i = start + 1;
+        for (; i + LANES <= end; i += LANES) {
+            VectorMask<Short> current = whitespace(ShortVector.fromCharArray(SPECIES, chars, i));
+            VectorMask<Short> previous = whitespace(ShortVector.fromCharArray(SPECIES, chars, i - 1));
+            count += previous.andNot(current).trueCount();
+        }
+        for (; i < end; i++) {
+            if (!isWhitespace(chars[i]) && isWhitespace(chars[i - 1])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int countSentenceBreaks(char[] chars, int start, int end) {
+        // The trimmed text starts above U+0020, so only a terminator can start a break there
+        int count = isTerminator(chars[start]) ? 1 : 0;
+        int i = start + 1;
+        for (; i + LANES <= end; i += LANES) {
+            ShortVector current = ShortVector.fromCharArray(SPECIES, chars, i);
+            ShortVector previous = ShortVector.fromCharArray(SPECIES, chars, i - 1);
+            count += terminator(current).andNot(terminator(previous)).trueCount();
+            VectorMask<Short> lineBreaks = lineBreak(current).andNot(lineBreak(previous));
+            // Rare in practice, and each needs a look back over the whitespace before it
+            for (int lane = lineBreaks.firstTrue(); lane < LANES; lane = nextTrue(lineBreaks, lane)) {
+                if (!inTerminatorTail(chars, start, i + lane)) {
+                    count++;
+                }
+            }
+        }
+        for (; i < end; i++) {
+            if (isTerminator(chars[i]) && !isTerminator(chars[i - 1])) {
+                count++;
+            } else if (isLineBreak(chars[i]) && !isLineBreak(chars[i - 1]) && !inTerminatorTail(chars, start, i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int nextTrue(VectorMask<Short> mask, int lane) {
+        for (int next = lane + 1; next < LANES; next++) {
+            if (mask.laneIsSet(next)) {
+                return next;
+            }
+        }
+        return LANES;
+    }
+
+    // Whether the greedy \s* after a terminator run reaches the line break at index
+    private static boolean inTerminatorTail(char[] chars, int start, int index) {
+        int j = index;
+        while (j > start && isWhitespace(chars[j - 1])) {
+            j--;
+        }
+        return j > start && isTerminator(chars[j - 1]);
+    }
+
+    private static VectorMask<Short> whitespace(ShortVector v) {
+        return v.compare(VectorOperators.EQ, (short) ' ')
+                .or(v.compare(VectorOperators.GE, (short) '\t').and(v.compare(VectorOperators.LE, (short) '\r')));
+    }
+
+    private static VectorMask<Short> terminator(ShortVector v) {
+        return v.compare(VectorOperators.EQ, (short) '.')
+                .or(v.compare(VectorOperators.EQ, (short) '!'))
+                .or(v.compare(VectorOperators.EQ, (short) '?'));
+    }
+
+    private static VectorMask<Short> lineBreak(ShortVector v) {
+        return v.compare(VectorOperators.EQ, (short) '\n').or(v.compare(VectorOperators.EQ, (short) '\r'));
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?';
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+}
@@ -99,6 +99,7 @@ const translations = {
       operation: "Operation",
       originalText: "Original Text",
       transformedText: "Transformed/Analysis",
+      bytes: "bytes",
       timestamp: "Timestamp",
     },
     footer: {
@@ -179,6 +180,7 @@ const translations = {
       operation: "संचालन",
       originalText: "मूल पाठ",
       transformedText: "परिवर्तित/विश्लेषण",
+      bytes: "बाइट",
       timestamp: "समय",
     },
     footer: {
@@ -259,6 +261,7 @@ const translations = {
       operation: "Operación",
       originalText: "Texto Original",
       transformedText: "Transformado/Análisis",
+      bytes: "bytes",
       timestamp: "Fecha y Hora",
     },
     footer: {
@@ -1240,12 +1243,20 @@ function App() {
                       {historyLogs.map((log) => (
                         <tr key={log.id}>
                           <td>{log.operationType}</td>
-                          <td className="text-truncate" style={{ maxWidth: '200px' }}>{log.originalText}</td>
+                          <td className="text-truncate" style={{ maxWidth: '200px' }}>
+                            {log.streamed ? (
+                                <small title={log.streamed.inputSha256}>{log.streamed.inputBytes} {t("history.bytes")}, SHA-256 {log.streamed.inputSha256.slice(0, 12)}</small>
+                            ) : (
+                                log.originalText
+                            )}
+                          </td>
                           <td>
-                            {log.transformedText ? (
+                            {log.streamed ? (
+                                <small title={log.streamed.outputSha256}>{log.streamed.outputBytes} {t("history.bytes")}, SHA-256 {log.streamed.outputSha256.slice(0, 12)}</small>
+                            ) : log.transformedText ? (
                                 <span className="text-truncate" style={{ maxWidth: '200px' }}>{log.transformedText}</span>
-                            ) : log.analysisResultJson ? (
-                                <pre className="text-truncate m-0" style={{ maxWidth: '200px', fontSize: '0.8em' }}>{JSON.stringify(JSON.parse(log.analysisResultJson), null, 2)}</pre>
+                            ) : log.analysis ? (
+                                <pre className="text-truncate m-0" style={{ maxWidth: '200px', fontSize: '0.8em' }}>{JSON.stringify(log.analysis, null, 2)}</pre>
                             ) : (
                                 "-"
                             )}